@@ -0,0 +1,80 @@
+package com.protomaps.basemap.feature;
+
+import com.onthegomap.planetiler.reader.geojson.GeoJson;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.index.strtree.STRtree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the startup cost of country lookups, each as the first load in a fresh JVM like at the start of a build.
+ * <p>
+ * {@link #strtree} is the original path, parsing {@code borders.json} into an {@link STRtree}. {@link #json} is the
+ * current fallback when {@code borders.bin} is missing, which also rasterizes the country grid, and {@link #binary}
+ * loads the baked {@code borders.bin}.
+ * <p>
+ * Run with {@code mvn -Pbenchmarks package -DskipTests && java -cp target/*-with-deps.jar org.openjdk.jmh.Main
+ * CountryCoderBenchmark}.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+@State(Scope.Benchmark)
+public class CountryCoderBenchmark {
+
+  private static InputStream resource(String name) {
+    return CountryCoderBenchmark.class.getResourceAsStream(name);
+  }
+
+  /**
+   * Loads the countries the way {@link CountryCoder} did before {@code borders.bin}: the GeoJSON parsed into an
+   * {@link STRtree}, built here since the first lookup would build it anyway.
+   */
+  @Benchmark
+  public STRtree strtree() throws IOException {
+    String json;
+    try (InputStream inputStream = resource("/borders.json")) {
+      json = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+    }
+    STRtree tree = new STRtree();
+    for (var feature : GeoJson.from(json)) {
+      var properties = feature.tags();
+      Object country = properties.containsKey("iso1A2") ? properties.get("iso1A2") : properties.get("country");
+      if (country == null || country.toString().isBlank() || feature.geometry().getNumGeometries() == 0) {
+        continue;
+      }
+      MultiPolygon mp = (MultiPolygon) feature.geometry();
+      tree.insert(mp.getEnvelopeInternal(),
+        new CountryCoder.Record(country.toString(), properties.get("nameEn").toString(), mp));
+    }
+    tree.build();
+    return tree;
+  }
+
+  @Benchmark
+  public CountryCoder json() throws IOException {
+    try (InputStream inputStream = resource("/borders.json")) {
+      return CountryCoder.fromJsonString(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+    }
+  }
+
+  @Benchmark
+  public CountryCoder binary() throws IOException {
+    try (InputStream inputStream = resource("/borders.bin")) {
+      return CountryCoder.read(inputStream);
+    }
+  }
+}
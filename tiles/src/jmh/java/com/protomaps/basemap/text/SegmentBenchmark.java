@@ -0,0 +1,101 @@
+package com.protomaps.basemap.text;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares {@link SegmentTable} against the regex based segmentation it replaced.
+ * <p>
+ * Run with {@code mvn -Pbenchmarks package -DskipTests && java -cp target/*-with-deps.jar org.openjdk.jmh.Main
+ * SegmentBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SegmentBenchmark {
+
+  private static final String[] NAMES = {
+    "Kathmandu",
+    "काठमाडौँ",
+    "काठमाडौँ Kathmandu",
+    "नयाँ दिल्ली New Delhi",
+    "मुंबई Mumbai ممبئی",
+    "Straße des 17. Juni",
+    "తెలుగు Hello! काठमाडौँ",
+    "東京 Tokyo",
+    "Ελληνικά",
+    "श्री हरमंदिर साहिब ਸ੍ਰੀ ਹਰਿਮੰਦਰ ਸਾਹਿਬ",
+  };
+
+  @Param({"Devanagari", "Devanagari,Bengali,Tamil"})
+  public String scripts;
+
+  private List<String> scriptList;
+  private SegmentTable table;
+
+  @Setup
+  public void setup() {
+    scriptList = List.of(scripts.split(","));
+    table = SegmentTable.of(scriptList);
+  }
+
+  @Benchmark
+  public void table(Blackhole bh) {
+    for (String name : NAMES) {
+      bh.consume(table.segment(name));
+    }
+  }
+
+  @Benchmark
+  public void regex(Blackhole bh) {
+    for (String name : NAMES) {
+      bh.consume(regexSegment(name, scriptList));
+    }
+  }
+
+  // the implementation of TextEngine.segment before SegmentTable, compiling the pattern on every call
+  private static List<String> regexSegment(String text, List<String> scripts) {
+    List<String> segments = new ArrayList<>();
+
+    if (text == null || text.isEmpty()) {
+      return segments;
+    }
+
+    if (scripts.isEmpty()) {
+      return new ArrayList<>(List.of(text));
+    }
+
+    String inner = "";
+    for (String script : scripts) {
+      inner += "\\p{In" + script + "}";
+    }
+    String regex = "[" + inner + "]+|[^" + inner + "]+";
+
+    Pattern pattern = Pattern.compile(regex);
+    Matcher matcher = pattern.matcher(text);
+
+    while (matcher.find()) {
+      segments.add(matcher.group());
+    }
+
+    return segments;
+  }
+}
@@ -3,9 +3,15 @@ package com.protomaps.basemap;
 import com.onthegomap.planetiler.ForwardingProfile;
 import com.onthegomap.planetiler.Planetiler;
 import com.onthegomap.planetiler.config.Arguments;
+import com.onthegomap.planetiler.stats.Stats;
 import com.onthegomap.planetiler.util.Downloader;
 import com.protomaps.basemap.feature.CountryCoder;
+import com.protomaps.basemap.feature.KeyDispatch;
+import com.protomaps.basemap.feature.NeRouter;
+import com.protomaps.basemap.feature.OsmRouter;
 import com.protomaps.basemap.feature.QrankDb;
+import com.protomaps.basemap.feature.VirtualTags;
+import com.protomaps.basemap.feature.WikidataOverrides;
 import com.protomaps.basemap.layers.AdminAreas;
 import com.protomaps.basemap.layers.Boundaries;
 import com.protomaps.basemap.layers.Buildings;
@@ -17,8 +23,13 @@ import com.protomaps.basemap.layers.Pois;
 import com.protomaps.basemap.layers.Roads;
 import com.protomaps.basemap.layers.Transit;
 import com.protomaps.basemap.layers.Water;
+import com.protomaps.basemap.names.NamePlan;
+import com.protomaps.basemap.postprocess.Area;
 import com.protomaps.basemap.postprocess.Clip;
+import com.protomaps.basemap.postprocess.TileGeometries;
 import com.protomaps.basemap.text.FontRegistry;
+import com.protomaps.basemap.text.TextEngine;
+import com.protomaps.basemap.text.TextMetrics;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -31,81 +42,100 @@ public class Basemap extends ForwardingProfile {
 
   public Basemap(QrankDb qrankDb, CountryCoder countryCoder, Clip clip,
     String layer) {
+    this(qrankDb, WikidataOverrides.fromJarResource(), WikidataOverrides.empty(), WikidataOverrides.empty(),
+      countryCoder, clip, layer, Stats.inMemory());
+  }
+
+  /**
+   * Each layer that labels features by wikidata id gets its own overrides, since the ids of a place, a POI and a lake
+   * can coincide: {@code placeOverrides} usually include the bundled places.csv, {@code poiOverrides} and
+   * {@code waterOverrides} should only hold rows meant for their layer.
+   */
+  public Basemap(QrankDb qrankDb, WikidataOverrides placeOverrides, WikidataOverrides poiOverrides,
+    WikidataOverrides waterOverrides, CountryCoder countryCoder, Clip clip, String layer, Stats stats) {
+
+    // OSM features only reach the layers that declared one of their tag keys
+    var osmRouter = new OsmRouter(stats);
+    // Natural Earth rows only reach the layers that read their table
+    var neRouter = new NeRouter(stats);
 
     if (layer.isEmpty() || layer.equals(Boundaries.LAYER_NAME)) {
       var admin = new Boundaries();
       registerHandler(admin);
-      registerSourceHandler("osm", admin::processOsm);
-      registerSourceHandler("ne", admin::processNe);
+      osmRouter.add(Boundaries.LAYER_NAME, admin::processOsm);
+      neRouter.add(Boundaries.NE_TABLES, admin::processNe);
     }
 
     if (layer.isEmpty() || layer.equals(AdminAreas.LAYER_NAME)) {
       var adminAreas = new AdminAreas();
       registerHandler(adminAreas);
-      registerSourceHandler("osm", adminAreas::processOsm);
-      registerSourceHandler("ne", adminAreas::processNe);
+      osmRouter.add(AdminAreas.LAYER_NAME, adminAreas::processOsm);
+      neRouter.add(AdminAreas.NE_TABLES, adminAreas::processNe);
     }
 
     if (layer.isEmpty() || layer.equals(Buildings.LAYER_NAME)) {
       var buildings = new Buildings();
       registerHandler(buildings);
-      registerSourceHandler("osm", buildings::processOsm);
+      osmRouter.add(Buildings.LAYER_NAME, Buildings.OSM_KEYS, buildings::processOsm);
     }
 
     if (layer.isEmpty() || layer.equals(Landuse.LAYER_NAME)) {
       var landuse = new Landuse();
       registerHandler(landuse);
-      registerSourceHandler("osm", landuse::processOsm);
+      osmRouter.add(Landuse.LAYER_NAME, Landuse.OSM_KEYS, landuse::processOsm);
     }
 
     if (layer.isEmpty() || layer.equals(Landcover.LAYER_NAME)) {
       var landcover = new Landcover();
       registerHandler(landcover);
       registerSourceHandler("landcover", landcover::processLandcover);
-      registerSourceHandler("ne", landcover::processNe);
+      neRouter.add(Landcover.NE_TABLES, landcover::processNe);
     }
 
     if (layer.isEmpty() || layer.equals(Places.LAYER_NAME)) {
-      var place = new Places(countryCoder);
+      var place = new Places(countryCoder, placeOverrides);
       registerHandler(place);
-      registerSourceHandler("osm", place::processOsm);
+      osmRouter.add(Places.LAYER_NAME, Places.OSM_KEYS, place::processOsm);
     }
 
     if (layer.isEmpty() || layer.equals(Pois.LAYER_NAME)) {
-      var poi = new Pois(qrankDb);
+      var poi = new Pois(qrankDb, poiOverrides);
       registerHandler(poi);
-      registerSourceHandler("osm", poi::processOsm);
+      osmRouter.add(Pois.LAYER_NAME, Pois.OSM_KEYS, poi::processOsm);
     }
 
     if (layer.isEmpty() || layer.equals(Roads.LAYER_NAME)) {
       var roads = new Roads(countryCoder);
       registerHandler(roads);
-      registerSourceHandler("osm", roads::processOsm);
+      osmRouter.add(Roads.LAYER_NAME, Roads.OSM_KEYS, roads::processOsm);
     }
 
     if (layer.isEmpty() || layer.equals(Transit.LAYER_NAME)) {
       var transit = new Transit();
       registerHandler(transit);
-      registerSourceHandler("osm", transit::processOsm);
+      osmRouter.add(Transit.LAYER_NAME, Transit.OSM_KEYS, transit::processOsm);
     }
 
     if (layer.isEmpty() || layer.equals(Water.LAYER_NAME)) {
-      var water = new Water();
+      var water = new Water(waterOverrides);
       registerHandler(water);
-      registerSourceHandler("osm", water::processOsm);
+      osmRouter.add(Water.LAYER_NAME, Water.OSM_KEYS, water::processOsm);
       registerSourceHandler("osm_water", water::processPreparedOsm);
-      registerSourceHandler("ne", water::processNe);
+      neRouter.add(Water.NE_TABLES, water::processNe);
     }
 
     if (layer.isEmpty() || layer.equals(Earth.LAYER_NAME)) {
       var earth = new Earth();
       registerHandler(earth);
 
-      registerSourceHandler("osm", earth::processOsm);
+      osmRouter.add(Earth.LAYER_NAME, Earth.OSM_KEYS, earth::processOsm);
       registerSourceHandler("osm_land", earth::processPreparedOsm);
-      registerSourceHandler("ne", earth::processNe);
+      neRouter.add(Earth.NE_TABLES, earth::processNe);
     }
 
+    registerSourceHandler("osm", osmRouter::process);
+    registerSourceHandler("ne", neRouter::process);
+
     if (clip != null) {
       registerHandler(clip);
     }
@@ -184,10 +214,32 @@ public class Basemap extends ForwardingProfile {
     Downloader.create(planetiler.config()).add("ne", neUrl, nePath)
       .add("pgf-encoding", "https://wipfli.github.io/pgf-encoding/pgf-encoding.zip", pgfEncodingZip)
       .run();
-    var qrankDb = QrankDb.empty();
+    var qrankArg = args.getString("qrank",
+      "Path to the QRank dataset used to rank POIs, either the gzipped CSV or an index converted with QrankIndex", "");
+    var qrankDb = qrankArg.isEmpty() ? QrankDb.empty() : QrankDb.load(Path.of(qrankArg));
+    var wikidataOverridesArg = args.getString("wikidata_overrides",
+      "Path to a CSV of wikidata,minzoom,maxzoom,rankmax rows that replace or extend the bundled places.csv for places",
+      "");
+    var placeOverrides = wikidataOverridesArg.isEmpty() ? WikidataOverrides.fromJarResource() :
+      WikidataOverrides.load(Path.of(wikidataOverridesArg));
+    var poiOverridesArg = args.getString("poi_wikidata_overrides",
+      "Path to a CSV of wikidata,minzoom,maxzoom,rankmax rows applied to POIs", "");
+    var poiOverrides = poiOverridesArg.isEmpty() ? WikidataOverrides.empty() :
+      WikidataOverrides.fromFile(Path.of(poiOverridesArg));
+    var waterOverridesArg = args.getString("water_wikidata_overrides",
+      "Path to a CSV of wikidata,minzoom,maxzoom,rankmax rows applied to water features", "");
+    var waterOverrides = waterOverridesArg.isEmpty() ? WikidataOverrides.empty() :
+      WikidataOverrides.fromFile(Path.of(waterOverridesArg));
 
     FontRegistry fontRegistry = FontRegistry.getInstance();
     fontRegistry.setZipFilePath(pgfEncodingZip.toString());
+    fontRegistry.setIndexDirectory(sourcesDir.resolve("pgf-encoding-index"));
+    fontRegistry.setEncodingCacheSize(args.getInteger("pgf_cache_size",
+      "Maximum number of PGF encoded names to cache per script, split over 64 shards, 0 to disable",
+      FontRegistry.DEFAULT_ENCODING_CACHE_SIZE));
+    TextEngine.setGlyphTolerance(args.getInteger("pgf_glyph_tolerance",
+      "Maximum offset plus advance difference when matching a shaped glyph to the PGF encoding",
+      TextEngine.DEFAULT_GLYPH_TOLERANCE));
 
     Clip clip = null;
     var clipArg = args.getString("clip", "File path to GeoJSON Polygon or MultiPolygon geometry to clip tileset.", "");
@@ -195,6 +247,11 @@ public class Basemap extends ForwardingProfile {
       clip =
         Clip.fromGeoJSONFile(args.getStats(), planetiler.config().minzoom(), planetiler.config().maxzoom(), true,
           Paths.get(clipArg));
+      if (args.getBoolean("clip_parallel",
+        "Compute the clipped tiles of all zooms in parallel at startup, instead of each zoom when it is first written",
+        false)) {
+        clip.computeZooms(true);
+      }
     }
 
     List<String> availableLayers = List.of(
@@ -219,10 +276,25 @@ public class Basemap extends ForwardingProfile {
       System.exit(1);
     }
 
-    fontRegistry.loadFontBundle("NotoSansDevanagari-Regular", "1", "Devanagari");
+    fontRegistry.loadFontBundles(List.of(
+      new FontRegistry.BundleSource("NotoSansDevanagari-Regular", "1", "Devanagari")
+    ));
 
-    planetiler.setProfile(new Basemap(qrankDb, countryCoder, clip, layer))
+    TextMetrics.register(planetiler.stats());
+    NamePlan.registerStats(planetiler.stats());
+    VirtualTags.registerStats(planetiler.stats());
+    TileGeometries.registerStats(planetiler.stats());
+    Area.registerStats(planetiler.stats());
+
+    var profile = new Basemap(qrankDb, placeOverrides, poiOverrides, waterOverrides, countryCoder, clip,
+      layer, planetiler.stats());
+    KeyDispatch.logReports();
+
+    planetiler.setProfile(profile)
       .setOutput(Path.of(area + ".pmtiles"))
       .run();
+
+    TextMetrics.logSummary();
+    NamePlan.logSummary();
   }
 }
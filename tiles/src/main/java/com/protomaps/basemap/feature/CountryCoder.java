@@ -1,24 +1,95 @@
 package com.protomaps.basemap.feature;
 
+import com.onthegomap.planetiler.geo.GeoUtils;
 import com.onthegomap.planetiler.reader.geojson.GeoJson;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import org.locationtech.jts.geom.*;
-import org.locationtech.jts.index.strtree.STRtree;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKBReader;
+import org.locationtech.jts.io.WKBWriter;
 
+/**
+ * Finds the country a geometry lies in.
+ *
+ * <p>
+ * Every country is rasterized onto a grid of {@link #GRID_ZOOM} web mercator tiles, which records for each cell the
+ * country that covers it entirely, or that it touches a border. Lookups in interior cells are answered from the grid,
+ * only lookups in border cells test the prepared country polygons. Geometries other than points are looked up by their
+ * interior point.
+ * </p>
+ *
+ * <p>
+ * The build bakes {@code borders.json} into {@code borders.bin} with {@link #main}: the country polygons as WKB, the
+ * {@link PackedRTree} over them and the run-length encoded grid, so that {@link #fromJarResource} does not have to
+ * parse GeoJSON or rasterize the countries on every start.
+ * </p>
+ */
 public class CountryCoder {
 
   public record Record(String country, String nameEn, MultiPolygon multiPolygon) {}
 
-  private STRtree tree;
+  static final int GRID_ZOOM = 10;
+  private static final int GRID_SIZE = 1 << GRID_ZOOM;
+  private static final short EMPTY = 0;
+  private static final short BORDER = -1;
 
-  public CountryCoder(STRtree tree) {
+  private static final int MAGIC = 0x50434331; // "PCC1"
+
+  // in the order of the tree
+  private final List<Record> records;
+  private final PreparedGeometry[] prepared;
+  private final PackedRTree tree;
+  // 0 for no country, -1 for a border cell, otherwise 1 + the index of the country that covers the cell
+  private final short[] cells;
+
+  private CountryCoder(List<Record> records, PackedRTree tree, short[] cells) {
+    this.records = records;
     this.tree = tree;
+    this.cells = cells;
+    this.prepared = new PreparedGeometry[records.size()];
+    for (int i = 0; i < records.size(); i++) {
+      prepared[i] = PreparedGeometryFactory.prepare(records.get(i).multiPolygon());
+    }
+  }
+
+  private static CountryCoder build(List<Record> unsorted) {
+    int[] order = PackedRTree.sortOrder(unsorted.stream().map(r -> r.multiPolygon().getEnvelopeInternal()).toList());
+    List<Record> records = new ArrayList<>(unsorted.size());
+    for (int i : order) {
+      records.add(unsorted.get(i));
+    }
+    var tree = PackedRTree.build(records.stream().map(r -> r.multiPolygon().getEnvelopeInternal()).toList());
+    var coder = new CountryCoder(records, tree, new short[GRID_SIZE * GRID_SIZE]);
+    for (int i = 0; i < records.size(); i++) {
+      coder.rasterize(i, 0, 0, 0);
+    }
+    return coder;
   }
 
+  /**
+   * Loads the countries from {@code borders.bin}, or parses {@code borders.json} if the build did not bake it.
+   */
   public static CountryCoder fromJarResource() throws IOException {
+    try (InputStream binary = CountryCoder.class.getResourceAsStream("/borders.bin")) {
+      if (binary != null) {
+        return read(binary);
+      }
+    }
+
     InputStream inputStream = CountryCoder.class.getResourceAsStream("/borders.json");
 
     String jsonContent = new String(inputStream.readAllBytes());
@@ -26,7 +97,7 @@ public class CountryCoder {
   }
 
   public static CountryCoder fromJsonString(String s) {
-    STRtree tree = new STRtree();
+    List<Record> records = new ArrayList<>();
 
     var g = GeoJson.from(s);
 
@@ -44,21 +115,160 @@ public class CountryCoder {
         continue;
       }
       MultiPolygon mp = (MultiPolygon) feature.geometry();
-      tree.insert(mp.getEnvelopeInternal(),
-        new Record(country, properties.get("nameEn").toString(), mp));
+      records.add(new Record(country, properties.get("nameEn").toString(), mp));
+    }
+    return build(records);
+  }
+
+  /**
+   * Writes the countries, the tree and the grid in the format read by {@link #read}.
+   */
+  public void write(OutputStream outputStream) throws IOException {
+    var out = new DataOutputStream(new BufferedOutputStream(outputStream));
+    out.writeInt(MAGIC);
+    out.writeInt(records.size());
+    var wkbWriter = new WKBWriter();
+    for (Record record : records) {
+      out.writeUTF(record.country());
+      out.writeUTF(record.nameEn());
+      byte[] wkb = wkbWriter.write(record.multiPolygon());
+      out.writeInt(wkb.length);
+      out.write(wkb);
+    }
+    tree.write(out);
+
+    // run-length encoded, the cells of oceans and country interiors form long runs
+    int start = 0;
+    while (start < cells.length) {
+      int end = start + 1;
+      while (end < cells.length && cells[end] == cells[start]) {
+        end++;
+      }
+      out.writeShort(cells[start]);
+      out.writeInt(end - start);
+      start = end;
+    }
+    out.flush();
+  }
+
+  /**
+   * Reads countries written by {@link #write}.
+   */
+  public static CountryCoder read(InputStream inputStream) throws IOException {
+    var in = new DataInputStream(new BufferedInputStream(inputStream));
+    if (in.readInt() != MAGIC) {
+      throw new IOException("Not a country coder index");
+    }
+    int count = in.readInt();
+    List<Record> records = new ArrayList<>(count);
+    var wkbReader = new WKBReader(GeoUtils.JTS_FACTORY);
+    try {
+      for (int i = 0; i < count; i++) {
+        String country = in.readUTF();
+        String nameEn = in.readUTF();
+        byte[] wkb = new byte[in.readInt()];
+        in.readFully(wkb);
+        records.add(new Record(country, nameEn, (MultiPolygon) wkbReader.read(wkb)));
+      }
+    } catch (ParseException e) {
+      throw new IOException("Invalid country geometry", e);
+    }
+    var tree = PackedRTree.read(in);
+
+    short[] cells = new short[GRID_SIZE * GRID_SIZE];
+    int start = 0;
+    while (start < cells.length) {
+      short value = in.readShort();
+      int end = start + in.readInt();
+      if (value != EMPTY) {
+        Arrays.fill(cells, start, end, value);
+      }
+      start = end;
+    }
+    return new CountryCoder(records, tree, cells);
+  }
+
+  /**
+   * Bakes the GeoJSON countries in the first argument into the binary index at the path of the second argument.
+   */
+  public static void main(String[] args) throws IOException {
+    var coder = fromJsonString(Files.readString(Path.of(args[0])));
+    Path output = Path.of(args[1]);
+    Files.createDirectories(output.toAbsolutePath().getParent());
+    try (var out = Files.newOutputStream(output)) {
+      coder.write(out);
+    }
+  }
+
+  private static Envelope cellEnvelope(int z, int x, int y) {
+    double size = 1d / (1 << z);
+    return new Envelope(
+      GeoUtils.getWorldLon(x * size), GeoUtils.getWorldLon((x + 1) * size),
+      GeoUtils.getWorldLat((y + 1) * size), GeoUtils.getWorldLat(y * size)
+    );
+  }
+
+  /**
+   * Marks the grid cells within tile {@code z/x/y} that country {@code index} covers or touches.
+   */
+  private void rasterize(int index, int z, int x, int y) {
+    Envelope envelope = cellEnvelope(z, x, y);
+    if (!envelope.intersects(records.get(index).multiPolygon().getEnvelopeInternal())) {
+      return;
+    }
+    Geometry cell = GeoUtils.JTS_FACTORY.toGeometry(envelope);
+    PreparedGeometry country = prepared[index];
+    if (country.covers(cell)) {
+      int shift = GRID_ZOOM - z;
+      for (int cx = x << shift; cx < (x + 1) << shift; cx++) {
+        for (int cy = y << shift; cy < (y + 1) << shift; cy++) {
+          int i = cy * GRID_SIZE + cx;
+          cells[i] = cells[i] == EMPTY ? (short) (index + 1) : BORDER;
+        }
+      }
+    } else if (country.intersects(cell)) {
+      if (z == GRID_ZOOM) {
+        cells[y * GRID_SIZE + x] = BORDER;
+      } else {
+        for (int dx = 0; dx <= 1; dx++) {
+          for (int dy = 0; dy <= 1; dy++) {
+            rasterize(index, z + 1, x * 2 + dx, y * 2 + dy);
+          }
+        }
+      }
     }
-    return new CountryCoder(tree);
+  }
+
+  /**
+   * Returns the grid cell state for a longitude and latitude: 0 outside every country, -1 on a border, or 1 + the index
+   * of the country that covers the cell.
+   */
+  short cell(double lon, double lat) {
+    double worldX = GeoUtils.getWorldX(lon);
+    double worldY = GeoUtils.getWorldY(lat);
+    if (worldX < 0 || worldX >= 1 || worldY < 0 || worldY >= 1) {
+      return BORDER;
+    }
+    return cells[(int) (worldY * GRID_SIZE) * GRID_SIZE + (int) (worldX * GRID_SIZE)];
   }
 
   public Optional<String> getCountryCode(Geometry geom) {
-    List<Record> results = tree.query(geom.getEnvelopeInternal());
-    if (results.isEmpty())
+    if (geom.isEmpty()) {
       return Optional.empty();
-    var filtered = results.stream().filter(rec -> rec.multiPolygon.contains(geom)
-    ).toList();
-    if (filtered.isEmpty()) {
+    }
+    Point point = geom instanceof Point p ? p : geom.getInteriorPoint();
+    short cell = cell(point.getX(), point.getY());
+    if (cell == EMPTY) {
       return Optional.empty();
+    } else if (cell != BORDER) {
+      return Optional.of(records.get(cell - 1).country());
     }
-    return Optional.of(filtered.getFirst().country);
+    int[] found = {-1};
+    tree.query(point.getX(), point.getY(), index -> {
+      if (found[0] < 0 && prepared[index].contains(point)) {
+        found[0] = index;
+      }
+    });
+    return found[0] < 0 ? Optional.empty() : Optional.of(records.get(found[0]).country());
   }
 }
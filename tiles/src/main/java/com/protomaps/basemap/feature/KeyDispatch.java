@@ -0,0 +1,400 @@
+package com.protomaps.basemap.feature;
+
+import com.onthegomap.planetiler.expression.Expression;
+import com.onthegomap.planetiler.expression.MultiExpression;
+import com.onthegomap.planetiler.reader.SourceFeature;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link MultiExpression.Index} over {@link Matcher#rule} entries, guarded by a table of the tag keys its rules
+ * require.
+ *
+ * <p>
+ * Each rule condition is analysed for the keys a feature must have for it to match: {@code with("highway", "primary")}
+ * requires {@code highway}, an AND requires the keys of its most selective part and an OR requires the keys of any of
+ * its parts. Rules without such a requirement, like {@code with()}, are candidates for every feature. A feature that
+ * has none of the keys and no unconditional rule applies is rejected without evaluating the index.
+ * </p>
+ *
+ * <p>
+ * Conditions on {@link Matcher.VirtualTag}s do not make a rule require a key. Instead, the conditions of such a rule
+ * are evaluated in stages, one per virtual tag in the order they were declared, and a virtual tag is only computed by
+ * {@link #getMatches(SourceFeature, VirtualTags)} once all earlier stages of a rule that tests it are true.
+ * </p>
+ *
+ * <p>
+ * Compiling also builds a {@link Report} of rules whose values are always overridden, and of rules that overlap with
+ * other rules on the same key. {@link #logReports} logs the reports of all rule sets compiled so far.
+ * </p>
+ */
+public final class KeyDispatch {
+  private static final Logger LOGGER = LoggerFactory.getLogger(KeyDispatch.class);
+
+  private static final List<KeyDispatch> compiled = new CopyOnWriteArrayList<>();
+
+  private final String name;
+  private final MultiExpression.Index<Map<String, Object>> index;
+  private final Map<String, int[]> candidates;
+  private final String[] keys;
+  private final boolean unconditional;
+  private final Report report;
+  private final Matcher.VirtualTag[] virtualTags;
+  private final List<Stage[]> lazyRules;
+
+  /**
+   * A part of the condition of a rule that tests the {@code tags} indices of {@link #virtualTags}.
+   */
+  private record Stage(Expression condition, int[] tags) {}
+
+  private KeyDispatch(String name, List<MultiExpression.Entry<Map<String, Object>>> rules,
+    MultiExpression.Index<Map<String, Object>> index, Matcher.VirtualTag[] virtualTags) {
+    this.name = name;
+    this.index = index;
+    this.virtualTags = virtualTags;
+
+    List<Set<String>> required = new ArrayList<>(rules.size());
+    Map<String, List<Integer>> byKey = new LinkedHashMap<>();
+    List<Integer> always = new ArrayList<>();
+    for (int i = 0; i < rules.size(); i++) {
+      Set<String> ruleKeys = requiredKeys(rules.get(i).expression(), virtualTags);
+      required.add(ruleKeys);
+      if (ruleKeys == null) {
+        always.add(i);
+      } else {
+        for (String key : ruleKeys) {
+          byKey.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+        }
+      }
+    }
+
+    this.candidates = new LinkedHashMap<>();
+    for (var entry : byKey.entrySet()) {
+      candidates.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+    }
+    this.keys = candidates.keySet().toArray(String[]::new);
+    this.unconditional = !always.isEmpty();
+    this.report = analyse(name, rules, required, byKey, always);
+
+    this.lazyRules = new ArrayList<>();
+    for (var rule : rules) {
+      Stage[] stages = stages(rule.expression());
+      if (stages != null) {
+        lazyRules.add(stages);
+      }
+    }
+  }
+
+  /**
+   * Compiles rules whose matches must be read in order, see {@link MultiExpression#ofOrdered}.
+   */
+  public static KeyDispatch ofOrdered(String name, List<MultiExpression.Entry<Map<String, Object>>> rules,
+    Matcher.VirtualTag... virtualTags) {
+    return register(new KeyDispatch(name, rules, MultiExpression.ofOrdered(rules).index(), virtualTags));
+  }
+
+  /**
+   * Compiles rules with {@link MultiExpression#of}.
+   */
+  public static KeyDispatch of(String name, List<MultiExpression.Entry<Map<String, Object>>> rules,
+    Matcher.VirtualTag... virtualTags) {
+    return register(new KeyDispatch(name, rules, MultiExpression.of(rules).index(), virtualTags));
+  }
+
+  private static KeyDispatch register(KeyDispatch dispatch) {
+    compiled.add(dispatch);
+    return dispatch;
+  }
+
+  /**
+   * Returns the keys that a feature must have one of to match {@code expression}, or null if it can match without any
+   * particular key.
+   */
+  static Set<String> requiredKeys(Expression expression) {
+    return requiredKeys(expression, new Matcher.VirtualTag[0]);
+  }
+
+  private static int virtualTagIndex(String field, Matcher.VirtualTag[] virtualTags) {
+    for (int i = 0; i < virtualTags.length; i++) {
+      if (virtualTags[i].covers(field)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static Set<String> requiredKeys(Expression expression, Matcher.VirtualTag[] virtualTags) {
+    if (expression instanceof Expression.MatchField matchField) {
+      return virtualTagIndex(matchField.field(), virtualTags) >= 0 ? null : Set.of(matchField.field());
+    } else if (expression instanceof Expression.MatchAny matchAny) {
+      return matchAny.matchWhenMissing() || virtualTagIndex(matchAny.field(), virtualTags) >= 0 ? null :
+        Set.of(matchAny.field());
+    } else if (expression instanceof Expression.And and) {
+      Set<String> best = null;
+      for (Expression child : and.children()) {
+        Set<String> childKeys = requiredKeys(child, virtualTags);
+        if (childKeys != null && (best == null || childKeys.size() < best.size())) {
+          best = childKeys;
+        }
+      }
+      return best;
+    } else if (expression instanceof Expression.Or or) {
+      if (or.children().isEmpty()) {
+        return null;
+      }
+      Set<String> union = new HashSet<>();
+      for (Expression child : or.children()) {
+        Set<String> childKeys = requiredKeys(child, virtualTags);
+        if (childKeys == null) {
+          return null;
+        }
+        union.addAll(childKeys);
+      }
+      return Set.copyOf(union);
+    }
+    return null;
+  }
+
+  private void collectVirtualTags(Expression expression, Set<Integer> result) {
+    String field = null;
+    if (expression instanceof Expression.MatchField matchField) {
+      field = matchField.field();
+    } else if (expression instanceof Expression.MatchAny matchAny) {
+      field = matchAny.field();
+    } else if (expression instanceof Expression.Not not) {
+      collectVirtualTags(not.child(), result);
+    } else if (expression instanceof Expression.And and) {
+      and.children().forEach(child -> collectVirtualTags(child, result));
+    } else if (expression instanceof Expression.Or or) {
+      or.children().forEach(child -> collectVirtualTags(child, result));
+    }
+    if (field != null && virtualTagIndex(field, virtualTags) >= 0) {
+      result.add(virtualTagIndex(field, virtualTags));
+    }
+  }
+
+  /**
+   * Splits a rule condition into the stages in which it is evaluated: first the conditions on source tags, then per
+   * virtual tag the conditions that test it and no later virtual tag. Returns null if the rule tests no virtual tag.
+   */
+  private Stage[] stages(Expression expression) {
+    List<? extends Expression> children =
+      expression instanceof Expression.And and ? and.children() : List.of(expression);
+    List<List<Expression>> conditions = new ArrayList<>();
+    List<Set<Integer>> tags = new ArrayList<>();
+    for (int i = 0; i <= virtualTags.length; i++) {
+      conditions.add(new ArrayList<>());
+      tags.add(new TreeSet<>());
+    }
+    boolean lazy = false;
+    for (Expression child : children) {
+      Set<Integer> childTags = new TreeSet<>();
+      collectVirtualTags(child, childTags);
+      int stage = childTags.isEmpty() ? 0 : Collections.max(childTags) + 1;
+      conditions.get(stage).add(child);
+      tags.get(stage).addAll(childTags);
+      lazy |= stage > 0;
+    }
+    if (!lazy) {
+      return null;
+    }
+    List<Stage> stages = new ArrayList<>();
+    for (int i = 0; i <= virtualTags.length; i++) {
+      if (!conditions.get(i).isEmpty()) {
+        stages.add(new Stage(Expression.and(conditions.get(i)),
+          tags.get(i).stream().mapToInt(Integer::intValue).toArray()));
+      }
+    }
+    return stages.toArray(Stage[]::new);
+  }
+
+  private static boolean isAlwaysTrue(Expression expression) {
+    if (Expression.TRUE.equals(expression)) {
+      return true;
+    } else if (expression instanceof Expression.And and) {
+      return and.children().stream().allMatch(KeyDispatch::isAlwaysTrue);
+    }
+    return false;
+  }
+
+  /**
+   * Returns false if {@code sf} has none of the keys that the rules require, so that no rule can match it.
+   */
+  public boolean mayMatch(SourceFeature sf) {
+    if (unconditional) {
+      return true;
+    }
+    Map<String, Object> tags = sf.tags();
+    if (tags.size() <= keys.length) {
+      for (String key : tags.keySet()) {
+        if (candidates.containsKey(key)) {
+          return true;
+        }
+      }
+    } else {
+      for (String key : keys) {
+        if (tags.containsKey(key)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the keys of which a feature must have at least one for a rule to match, or null if some rule needs no key.
+   */
+  public Set<String> keys() {
+    return unconditional ? null : Collections.unmodifiableSet(candidates.keySet());
+  }
+
+  /**
+   * Returns the indices of the rules that require {@code key}, in rule order.
+   */
+  public int[] candidates(String key) {
+    return candidates.getOrDefault(key, new int[0]);
+  }
+
+  /**
+   * Returns the values of the rules that match {@code sf}, like {@link MultiExpression.Index#getMatches}.
+   */
+  public List<Map<String, Object>> getMatches(SourceFeature sf) {
+    return mayMatch(sf) ? index.getMatches(sf) : List.of();
+  }
+
+  /**
+   * Returns the values of the rules that match {@code sf}, after computing the virtual tags that a rule needs with the
+   * providers of {@code providers}.
+   */
+  public List<Map<String, Object>> getMatches(SourceFeature sf, VirtualTags providers) {
+    boolean mayMatch = mayMatch(sf);
+    boolean[] provided = new boolean[virtualTags.length];
+    if (mayMatch) {
+      for (Stage[] stages : lazyRules) {
+        for (Stage stage : stages) {
+          for (int tag : stage.tags()) {
+            if (!provided[tag]) {
+              provided[tag] = true;
+              providers.evaluate(virtualTags[tag], sf);
+            }
+          }
+          if (!stage.condition().evaluate(sf, new ArrayList<>())) {
+            break;
+          }
+        }
+      }
+    }
+    for (int i = 0; i < virtualTags.length; i++) {
+      if (!provided[i]) {
+        providers.skip(virtualTags[i]);
+      }
+    }
+    return mayMatch ? index.getMatches(sf) : List.of();
+  }
+
+  public String name() {
+    return name;
+  }
+
+  public Report report() {
+    return report;
+  }
+
+  /**
+   * The result of analysing a rule set.
+   *
+   * @param name          The name of the rule set.
+   * @param rules         The number of rules.
+   * @param keys          The number of candidate rules per required key.
+   * @param unconditional The rules that are candidates for every feature.
+   * @param deadRules     Rules whose values are always overridden by a later rule with the same or a broader condition.
+   * @param overlaps      Per key, the number of candidate rule pairs that set the same value, and rule pairs with
+   *                      identical conditions.
+   */
+  public record Report(
+    String name,
+    int rules,
+    Map<String, Integer> keys,
+    List<Integer> unconditional,
+    List<String> deadRules,
+    List<String> overlaps
+  ) {}
+
+  private static boolean setsSameValue(Map<String, Object> a, Map<String, Object> b) {
+    for (String key : a.keySet()) {
+      if (b.containsKey(key)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static Report analyse(String name, List<MultiExpression.Entry<Map<String, Object>>> rules,
+    List<Set<String>> required, Map<String, List<Integer>> byKey, List<Integer> always) {
+    List<String> deadRules = new ArrayList<>();
+    for (int i = 0; i < rules.size(); i++) {
+      var rule = rules.get(i);
+      for (int j = i + 1; j < rules.size(); j++) {
+        var later = rules.get(j);
+        boolean coversCondition = isAlwaysTrue(later.expression()) || later.expression().equals(rule.expression());
+        if (coversCondition && later.result().keySet().containsAll(rule.result().keySet())) {
+          deadRules.add("#" + i + " is always overridden by #" + j);
+          break;
+        }
+      }
+    }
+
+    List<String> overlaps = new ArrayList<>();
+    Map<String, Integer> keys = new LinkedHashMap<>();
+    for (var entry : byKey.entrySet()) {
+      List<Integer> candidates = entry.getValue();
+      keys.put(entry.getKey(), candidates.size());
+      int pairs = 0;
+      for (int a = 0; a < candidates.size(); a++) {
+        for (int b = a + 1; b < candidates.size(); b++) {
+          if (setsSameValue(rules.get(candidates.get(a)).result(), rules.get(candidates.get(b)).result())) {
+            pairs++;
+          }
+        }
+      }
+      if (pairs > 0) {
+        overlaps.add(entry.getKey() + ": " + pairs + " rule pairs set the same value");
+      }
+    }
+    for (int i = 0; i < rules.size(); i++) {
+      for (int j = i + 1; j < rules.size(); j++) {
+        if (required.get(i) != null && rules.get(i).expression().equals(rules.get(j).expression())) {
+          overlaps.add("#" + i + " and #" + j + " have the same condition");
+        }
+      }
+    }
+
+    return new Report(name, rules.size(), keys, List.copyOf(always), deadRules, overlaps);
+  }
+
+  /**
+   * Logs the report of every rule set compiled so far, warning about dead rules.
+   */
+  public static void logReports() {
+    for (KeyDispatch dispatch : compiled) {
+      Report report = dispatch.report;
+      LOGGER.info("Rules {}: {} rules dispatched on {} keys, {} unconditional", report.name(), report.rules(),
+        report.keys().size(), report.unconditional().size());
+      for (String overlap : report.overlaps()) {
+        LOGGER.debug("Rules {}: {}", report.name(), overlap);
+      }
+      for (String deadRule : report.deadRules()) {
+        LOGGER.warn("Rules {}: dead rule {}", report.name(), deadRule);
+      }
+    }
+  }
+}
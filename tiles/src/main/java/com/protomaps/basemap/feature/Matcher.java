@@ -4,11 +4,15 @@ import com.onthegomap.planetiler.expression.Expression;
 import com.onthegomap.planetiler.expression.MultiExpression;
 import com.onthegomap.planetiler.geo.GeometryType;
 import com.onthegomap.planetiler.reader.SourceFeature;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * A utility class for matching source feature properties to values.
@@ -36,10 +40,74 @@ import java.util.Map;
  *String kind = getString(sourceFeature, matches, "kind", "other");
  * </code>
  * </pre>
+ *
+ * <p>
+ * Layers that read several values per feature should {@link #resolve} the matches once instead, which reads all values
+ * in a single pass over the matches using the {@link Slot} each key was compiled to.
+ * </p>
  */
 public class Matcher {
   public record Use(String key, Object value) {}
 
+  /**
+   * A dense index assigned to a {@link #use} key, see {@link #slot}.
+   */
+  public record Slot(String key, int index) {}
+
+  private static final Map<String, Slot> slots = new HashMap<>();
+  private static volatile int slotCount = 0;
+
+  private static final Object UNSET = new Object();
+
+  /**
+   * Returns the slot of {@code key}, assigning the next free index the first time a key is seen.
+   */
+  public static synchronized Slot slot(String key) {
+    Slot slot = slots.get(key);
+    if (slot == null) {
+      slot = new Slot(key, slots.size());
+      slots.put(key, slot);
+      slotCount = slots.size();
+    }
+    return slot;
+  }
+
+  /**
+   * The key-value pairs of a {@link #rule}, with every key compiled to its {@link Slot}.
+   */
+  static final class Outputs extends AbstractMap<String, Object> {
+    private final Map<String, Object> map;
+    private final int[] indices;
+    private final Object[] values;
+
+    Outputs(Map<String, Object> map) {
+      this.map = Collections.unmodifiableMap(map);
+      this.indices = new int[map.size()];
+      this.values = new Object[map.size()];
+      int i = 0;
+      for (var entry : map.entrySet()) {
+        indices[i] = slot(entry.getKey()).index();
+        values[i] = entry.getValue();
+        i++;
+      }
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+      return map.entrySet();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return map.containsKey(key);
+    }
+
+    @Override
+    public Object get(Object key) {
+      return map.get(key);
+    }
+  }
+
   /**
    * Creates a matching rule with conditions and values.
    * 
@@ -57,7 +125,7 @@ public class Matcher {
    * @return A {@link MultiExpression.Entry} containing the rule definition.
    */
   public static MultiExpression.Entry<Map<String, Object>> rule(Object... arguments) {
-    Map<String, Object> result = new HashMap<>();
+    Map<String, Object> result = new LinkedHashMap<>();
     List<Expression> conditions = new ArrayList<>();
     for (Object argument : arguments) {
       if (argument instanceof Use use) {
@@ -66,7 +134,7 @@ public class Matcher {
         conditions.add(condition);
       }
     }
-    return MultiExpression.entry(result, Expression.and(conditions));
+    return MultiExpression.entry(new Outputs(result), Expression.and(conditions));
   }
 
   /**
@@ -173,6 +241,36 @@ public class Matcher {
     return Expression.not(withPolygon());
   }
 
+  /**
+   * A tag that is not part of the source data, but is computed on demand, see {@link #virtualTag}.
+   */
+  public record VirtualTag(String prefix) {
+
+    /**
+     * Returns true if {@code key} is this tag or belongs to its family of tags.
+     */
+    public boolean covers(String key) {
+      return key.startsWith(prefix);
+    }
+  }
+
+  /**
+   * Declares a virtual tag for a {@link KeyDispatch}.
+   *
+   * <p>
+   * Rules test virtual tags with {@link #with} and {@link #without} like any other tag. The tag is only computed, with
+   * the provider passed in {@link VirtualTags}, when the other conditions of a rule that tests it are true. A prefix
+   * declares a family of tags computed together, e.g., {@code virtualTag("_r_network_")} covers
+   * {@code _r_network_US:I}.
+   * </p>
+   *
+   * @param prefix The key of the tag, or the prefix of the keys of a family of tags.
+   * @return A new {@link VirtualTag} instance.
+   */
+  public static VirtualTag virtualTag(String prefix) {
+    return new VirtualTag(prefix);
+  }
+
   public record FromTag(String key) {}
 
   /**
@@ -203,78 +301,155 @@ public class Matcher {
     return new FromTag(key);
   }
 
-  public static String getString(SourceFeature sf, List<Map<String, Object>> matches, String key, String defaultValue) {
-    for (var match : matches.reversed()) {
-      if (match.containsKey(key)) {
-        Object value = match.get(key);
-        if (value instanceof String stringValue) {
-          return stringValue;
-        } else if (value instanceof FromTag fromTag) {
-          return sf.getString(fromTag.key, defaultValue);
-        } else {
-          return defaultValue;
-        }
+  private static String asString(SourceFeature sf, Object value, String defaultValue) {
+    if (value instanceof String stringValue) {
+      return stringValue;
+    } else if (value instanceof FromTag fromTag) {
+      return sf.getString(fromTag.key, defaultValue);
+    }
+    return defaultValue;
+  }
+
+  private static Integer asInteger(SourceFeature sf, Object value, Integer defaultValue) {
+    if (value instanceof Integer integerValue) {
+      return integerValue;
+    } else if (value instanceof FromTag fromTag) {
+      try {
+        return sf.hasTag(fromTag.key) ? Integer.valueOf(sf.getString(fromTag.key)) : defaultValue;
+      } catch (NumberFormatException e) {
+        return defaultValue;
       }
     }
     return defaultValue;
   }
 
-  public static Integer getInteger(SourceFeature sf, List<Map<String, Object>> matches, String key,
-    Integer defaultValue) {
-    for (var match : matches.reversed()) {
-      if (match.containsKey(key)) {
-        Object value = match.get(key);
-        if (value instanceof Integer integerValue) {
-          return integerValue;
-        } else if (value instanceof FromTag fromTag) {
-          try {
-            return sf.hasTag(fromTag.key) ? Integer.valueOf(sf.getString(fromTag.key)) : defaultValue;
-          } catch (NumberFormatException e) {
-            return defaultValue;
-          }
-        } else {
-          return defaultValue;
-        }
+  private static Double asDouble(SourceFeature sf, Object value, Double defaultValue) {
+    if (value instanceof Double doubleValue) {
+      return doubleValue;
+    } else if (value instanceof FromTag fromTag) {
+      try {
+        return sf.hasTag(fromTag.key) ? Double.valueOf(sf.getString(fromTag.key)) : defaultValue;
+      } catch (NumberFormatException e) {
+        return defaultValue;
       }
     }
     return defaultValue;
   }
 
-  public static Double getDouble(SourceFeature sf, List<Map<String, Object>> matches, String key, Double defaultValue) {
+  private static Boolean asBoolean(SourceFeature sf, Object value, Boolean defaultValue) {
+    if (value instanceof Boolean booleanValue) {
+      return booleanValue;
+    } else if (value instanceof FromTag fromTag) {
+      return sf.hasTag(fromTag.key) ? sf.getBoolean(fromTag.key) : defaultValue;
+    }
+    return defaultValue;
+  }
+
+  private static Object lookup(List<Map<String, Object>> matches, String key) {
     for (var match : matches.reversed()) {
       if (match.containsKey(key)) {
-        Object value = match.get(key);
-        if (value instanceof Double doubleValue) {
-          return doubleValue;
-        } else if (value instanceof FromTag fromTag) {
-          try {
-            return sf.hasTag(fromTag.key) ? Double.valueOf(sf.getString(fromTag.key)) : defaultValue;
-          } catch (NumberFormatException e) {
-            return defaultValue;
-          }
-        } else {
-          return defaultValue;
-        }
+        return match.get(key);
       }
     }
-    return defaultValue;
+    return UNSET;
+  }
+
+  public static String getString(SourceFeature sf, List<Map<String, Object>> matches, String key, String defaultValue) {
+    return asString(sf, lookup(matches, key), defaultValue);
+  }
+
+  public static Integer getInteger(SourceFeature sf, List<Map<String, Object>> matches, String key,
+    Integer defaultValue) {
+    return asInteger(sf, lookup(matches, key), defaultValue);
+  }
+
+  public static Double getDouble(SourceFeature sf, List<Map<String, Object>> matches, String key, Double defaultValue) {
+    return asDouble(sf, lookup(matches, key), defaultValue);
   }
 
   public static Boolean getBoolean(SourceFeature sf, List<Map<String, Object>> matches, String key,
     Boolean defaultValue) {
-    for (var match : matches.reversed()) {
-      if (match.containsKey(key)) {
-        Object value = match.get(key);
-        if (value instanceof Boolean booleanValue) {
-          return booleanValue;
-        } else if (value instanceof FromTag fromTag) {
-          return sf.hasTag(fromTag.key) ? sf.getBoolean(fromTag.key) : defaultValue;
-        } else {
-          return defaultValue;
+    return asBoolean(sf, lookup(matches, key), defaultValue);
+  }
+
+  /**
+   * Reads the value of every slot from {@code matches} in one pass, later matches overriding earlier ones like in
+   * {@link #getString} and similar functions.
+   *
+   * <p>
+   * Example usage:
+   * </p>
+   *
+   * <pre>
+   * <code>
+   *private static final Slot KIND = slot("kind");
+   *...
+   *var values = resolve(sourceFeature, index.getMatches(sourceFeature));
+   *String kind = values.getString(KIND, "other");
+   * </code>
+   * </pre>
+   */
+  public static Resolved resolve(SourceFeature sf, List<Map<String, Object>> matches) {
+    Object[] values = new Object[slotCount];
+    Arrays.fill(values, UNSET);
+    for (int i = matches.size() - 1; i >= 0; i--) {
+      Map<String, Object> match = matches.get(i);
+      if (match instanceof Outputs outputs) {
+        for (int j = 0; j < outputs.indices.length; j++) {
+          int index = outputs.indices[j];
+          if (values[index] == UNSET) {
+            values[index] = outputs.values[j];
+          }
+        }
+      } else {
+        // rule maps that were not built with rule()
+        for (var entry : match.entrySet()) {
+          int index = slot(entry.getKey()).index();
+          if (index >= values.length) {
+            int oldLength = values.length;
+            values = Arrays.copyOf(values, slotCount);
+            Arrays.fill(values, oldLength, values.length, UNSET);
+          }
+          if (values[index] == UNSET) {
+            values[index] = entry.getValue();
+          }
         }
       }
     }
-    return defaultValue;
+    return new Resolved(sf, values);
+  }
+
+  /**
+   * The values of all slots for one source feature, returned by {@link #resolve}.
+   */
+  public static final class Resolved {
+    private final SourceFeature sf;
+    private final Object[] values;
+
+    private Resolved(SourceFeature sf, Object[] values) {
+      this.sf = sf;
+      this.values = values;
+    }
+
+    private Object value(Slot slot) {
+      return slot.index() < values.length ? values[slot.index()] : UNSET;
+    }
+
+    public String getString(Slot slot, String defaultValue) {
+      return asString(sf, value(slot), defaultValue);
+    }
+
+    public Integer getInteger(Slot slot, Integer defaultValue) {
+      return asInteger(sf, value(slot), defaultValue);
+    }
+
+    public Double getDouble(Slot slot, Double defaultValue) {
+      return asDouble(sf, value(slot), defaultValue);
+    }
+
+    public Boolean getBoolean(Slot slot, Boolean defaultValue) {
+      return asBoolean(sf, value(slot), defaultValue);
+    }
   }
 
 }
@@ -0,0 +1,101 @@
+package com.protomaps.basemap.feature;
+
+import com.onthegomap.planetiler.FeatureCollector;
+import com.onthegomap.planetiler.reader.SourceFeature;
+import com.onthegomap.planetiler.stats.Counter;
+import com.onthegomap.planetiler.stats.Stats;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Hands each Natural Earth row only to the layer handlers registered for its table.
+ *
+ * <p>
+ * Rows of tables no handler was registered for are dropped after a single lookup of the source layer. Per table, the
+ * number of rows and the time spent in its handlers are reported through {@link Stats}, next to the rows of tables
+ * that were skipped.
+ * </p>
+ */
+public final class NeRouter {
+
+  private record Table(
+    List<BiConsumer<SourceFeature, FeatureCollector>> handlers,
+    Counter.MultiThreadCounter rows,
+    Counter.MultiThreadCounter nanos
+  ) {}
+
+  private final Map<String, Table> tables = new HashMap<>();
+  private final Map<String, Counter.MultiThreadCounter> skipped = new ConcurrentHashMap<>();
+
+  public NeRouter(Stats stats) {
+    stats.counter("ne_rows", "table", () -> tableCounters(Table::rows));
+    stats.counter("ne_table_nanos", "table", () -> tableCounters(Table::nanos));
+    stats.counter("ne_rows_skipped", "table", () -> new TreeMap<>(skipped));
+  }
+
+  private Map<String, LongSupplier> tableCounters(Function<Table, Counter.Readable> counter) {
+    Map<String, LongSupplier> result = new TreeMap<>();
+    for (var entry : tables.entrySet()) {
+      result.put(entry.getKey(), counter.apply(entry.getValue()));
+    }
+    return result;
+  }
+
+  /**
+   * Adds a handler for the rows of each of {@code tables}, called after the handlers added before it.
+   */
+  public NeRouter add(Set<String> tableNames, BiConsumer<SourceFeature, FeatureCollector> handler) {
+    for (String tableName : tableNames) {
+      tables.computeIfAbsent(tableName,
+        name -> new Table(new ArrayList<>(), Counter.newMultiThreadCounter(), Counter.newMultiThreadCounter()))
+        .handlers().add(handler);
+    }
+    return this;
+  }
+
+  /**
+   * Returns the names of the tables that have a handler.
+   */
+  public Set<String> tables() {
+    return Collections.unmodifiableSet(tables.keySet());
+  }
+
+  public void process(SourceFeature sf, FeatureCollector features) {
+    Table table = tables.get(sf.getSourceLayer());
+    if (table == null) {
+      skipped.computeIfAbsent(sf.getSourceLayer(), name -> Counter.newMultiThreadCounter()).inc();
+      return;
+    }
+    long start = System.nanoTime();
+    for (var handler : table.handlers()) {
+      handler.accept(sf, features);
+    }
+    table.nanos().incBy(System.nanoTime() - start);
+    table.rows().inc();
+  }
+
+  /**
+   * Returns how many rows of {@code tableName} were handed to its handlers.
+   */
+  public long rows(String tableName) {
+    Table table = tables.get(tableName);
+    return table == null ? 0 : table.rows().get();
+  }
+
+  /**
+   * Returns how many rows of {@code tableName} were dropped because no handler reads it.
+   */
+  public long skipped(String tableName) {
+    var counter = skipped.get(tableName);
+    return counter == null ? 0 : counter.get();
+  }
+}
@@ -0,0 +1,114 @@
+package com.protomaps.basemap.feature;
+
+import com.onthegomap.planetiler.FeatureCollector;
+import com.onthegomap.planetiler.reader.SourceFeature;
+import com.onthegomap.planetiler.stats.Counter;
+import com.onthegomap.planetiler.stats.Stats;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Hands each OSM feature only to the layer handlers that declared one of its tag keys.
+ *
+ * <p>
+ * Every handler is assigned a bit. A single pass over the tags of a feature ORs together the bits of the handlers that
+ * care about each key, and only those handlers are called, in the order they were added. Handlers that need features
+ * without a particular tag, like members of boundary relations, are added without keys and always called. The number of
+ * features each handler was spared is reported through {@link Stats}.
+ * </p>
+ */
+public final class OsmRouter {
+  private static final int MAX_HANDLERS = Integer.SIZE;
+
+  private final List<String> names = new ArrayList<>();
+  private final List<BiConsumer<SourceFeature, FeatureCollector>> handlers = new ArrayList<>();
+  private final List<Counter.MultiThreadCounter> skipped = new ArrayList<>();
+  private final Map<String, Integer> masks = new HashMap<>();
+  private int alwaysMask = 0;
+
+  public OsmRouter(Stats stats) {
+    stats.counter("osm_handler_skipped", "handler", this::skippedCounters);
+  }
+
+  private Map<String, LongSupplier> skippedCounters() {
+    Map<String, LongSupplier> result = new LinkedHashMap<>();
+    for (int i = 0; i < names.size(); i++) {
+      result.put(names.get(i), skipped.get(i));
+    }
+    return result;
+  }
+
+  private int nextBit(String name, BiConsumer<SourceFeature, FeatureCollector> handler) {
+    if (handlers.size() == MAX_HANDLERS) {
+      throw new IllegalStateException("Cannot route more than " + MAX_HANDLERS + " handlers");
+    }
+    int bit = 1 << handlers.size();
+    names.add(name);
+    handlers.add(handler);
+    skipped.add(Counter.newMultiThreadCounter());
+    return bit;
+  }
+
+  /**
+   * Adds a handler that is called for every feature.
+   */
+  public OsmRouter add(String name, BiConsumer<SourceFeature, FeatureCollector> handler) {
+    alwaysMask |= nextBit(name, handler);
+    return this;
+  }
+
+  /**
+   * Adds a handler that is only called for features with at least one of {@code keys}, or for every feature if
+   * {@code keys} is null, like {@link KeyDispatch#keys} of a rule set with a rule that needs no key.
+   */
+  public OsmRouter add(String name, Set<String> keys, BiConsumer<SourceFeature, FeatureCollector> handler) {
+    int bit = nextBit(name, handler);
+    if (keys == null) {
+      alwaysMask |= bit;
+      return this;
+    }
+    for (String key : keys) {
+      masks.merge(key, bit, (a, b) -> a | b);
+    }
+    return this;
+  }
+
+  /**
+   * Returns the bits of the handlers that {@code sf} is routed to.
+   */
+  int route(SourceFeature sf) {
+    int mask = alwaysMask;
+    for (String key : sf.tags().keySet()) {
+      Integer keyMask = masks.get(key);
+      if (keyMask != null) {
+        mask |= keyMask;
+      }
+    }
+    return mask;
+  }
+
+  public void process(SourceFeature sf, FeatureCollector features) {
+    int mask = route(sf);
+    for (int i = 0; i < handlers.size(); i++) {
+      if ((mask & (1 << i)) != 0) {
+        handlers.get(i).accept(sf, features);
+      } else {
+        skipped.get(i).inc();
+      }
+    }
+  }
+
+  /**
+   * Returns how many features were not handed to the handler {@code name}.
+   */
+  public long skipped(String name) {
+    int i = names.indexOf(name);
+    return i < 0 ? 0 : skipped.get(i).get();
+  }
+}
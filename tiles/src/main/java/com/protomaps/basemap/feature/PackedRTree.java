@@ -0,0 +1,160 @@
+package com.protomaps.basemap.feature;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import org.locationtech.jts.geom.Envelope;
+
+/**
+ * A static R-tree over item envelopes, bulk-loaded with sort-tile-recursive ordering and stored as one flat array of
+ * node boxes, so that it can be written and read back without rebuilding it.
+ *
+ * <p>
+ * The items have to be added in the order returned by {@link #sortOrder}; queries report them by their position in that
+ * order. The boxes of the leaves come first, followed by one level of parent nodes after the other up to the root, each
+ * parent covering {@link #NODE_SIZE} consecutive nodes of the level below.
+ * </p>
+ */
+final class PackedRTree {
+
+  static final int NODE_SIZE = 16;
+
+  private final int numItems;
+  // minX, minY, maxX, maxY per node
+  private final double[] boxes;
+  // index of the first node of each level, followed by the total number of nodes
+  private final int[] levelStarts;
+
+  private PackedRTree(int numItems, double[] boxes) {
+    this.numItems = numItems;
+    this.boxes = boxes;
+    this.levelStarts = levelStarts(numItems);
+  }
+
+  private static int[] levelStarts(int numItems) {
+    List<Integer> starts = new ArrayList<>();
+    starts.add(0);
+    int start = 0;
+    int count = numItems;
+    while (true) {
+      start += count;
+      starts.add(start);
+      if (count <= 1) {
+        break;
+      }
+      count = (count + NODE_SIZE - 1) / NODE_SIZE;
+    }
+    return starts.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  /**
+   * Returns the order in which to add {@code envelopes} to the tree: sorted by center x into vertical slices, and by
+   * center y within each slice.
+   */
+  static int[] sortOrder(List<Envelope> envelopes) {
+    int n = envelopes.size();
+    int sliceCount = Math.max(1, (int) Math.ceil(Math.sqrt(Math.ceil(n / (double) NODE_SIZE))));
+    int sliceSize = NODE_SIZE * (int) Math.ceil(Math.ceil(n / (double) NODE_SIZE) / sliceCount);
+    List<Integer> byX = IntStream.range(0, n).boxed()
+      .sorted(Comparator.comparingDouble(i -> envelopes.get(i).centre().x))
+      .toList();
+    int[] order = new int[n];
+    int pos = 0;
+    for (int start = 0; start < n; start += sliceSize) {
+      List<Integer> slice = byX.subList(start, Math.min(n, start + sliceSize)).stream()
+        .sorted(Comparator.comparingDouble(i -> envelopes.get(i).centre().y))
+        .toList();
+      for (int i : slice) {
+        order[pos++] = i;
+      }
+    }
+    return order;
+  }
+
+  /**
+   * Builds the tree over {@code envelopes}, which have to be in {@link #sortOrder}.
+   */
+  static PackedRTree build(List<Envelope> envelopes) {
+    int[] starts = levelStarts(envelopes.size());
+    double[] boxes = new double[starts[starts.length - 1] * 4];
+    for (int i = 0; i < envelopes.size(); i++) {
+      Envelope envelope = envelopes.get(i);
+      boxes[i * 4] = envelope.getMinX();
+      boxes[i * 4 + 1] = envelope.getMinY();
+      boxes[i * 4 + 2] = envelope.getMaxX();
+      boxes[i * 4 + 3] = envelope.getMaxY();
+    }
+    for (int level = 1; level < starts.length - 1; level++) {
+      for (int node = starts[level]; node < starts[level + 1]; node++) {
+        int first = starts[level - 1] + (node - starts[level]) * NODE_SIZE;
+        int last = Math.min(first + NODE_SIZE, starts[level]);
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int child = first; child < last; child++) {
+          minX = Math.min(minX, boxes[child * 4]);
+          minY = Math.min(minY, boxes[child * 4 + 1]);
+          maxX = Math.max(maxX, boxes[child * 4 + 2]);
+          maxY = Math.max(maxY, boxes[child * 4 + 3]);
+        }
+        boxes[node * 4] = minX;
+        boxes[node * 4 + 1] = minY;
+        boxes[node * 4 + 2] = maxX;
+        boxes[node * 4 + 3] = maxY;
+      }
+    }
+    return new PackedRTree(envelopes.size(), boxes);
+  }
+
+  int size() {
+    return numItems;
+  }
+
+  /**
+   * Calls {@code consumer} with the position of every item whose envelope contains the point {@code x, y}, in
+   * ascending order.
+   */
+  void query(double x, double y, IntConsumer consumer) {
+    if (numItems > 0) {
+      visit(levelStarts.length - 2, levelStarts[levelStarts.length - 2], x, y, consumer);
+    }
+  }
+
+  private void visit(int level, int node, double x, double y, IntConsumer consumer) {
+    if (x < boxes[node * 4] || y < boxes[node * 4 + 1] || x > boxes[node * 4 + 2] || y > boxes[node * 4 + 3]) {
+      return;
+    }
+    if (level == 0) {
+      consumer.accept(node);
+      return;
+    }
+    int first = levelStarts[level - 1] + (node - levelStarts[level]) * NODE_SIZE;
+    int last = Math.min(first + NODE_SIZE, levelStarts[level]);
+    for (int child = first; child < last; child++) {
+      visit(level - 1, child, x, y, consumer);
+    }
+  }
+
+  void write(DataOutput out) throws IOException {
+    out.writeInt(numItems);
+    for (double value : boxes) {
+      out.writeDouble(value);
+    }
+  }
+
+  static PackedRTree read(DataInput in) throws IOException {
+    int numItems = in.readInt();
+    int[] starts = levelStarts(numItems);
+    double[] boxes = new double[starts[starts.length - 1] * 4];
+    for (int i = 0; i < boxes.length; i++) {
+      boxes[i] = in.readDouble();
+    }
+    return new PackedRTree(numItems, boxes);
+  }
+}
@@ -2,40 +2,38 @@ package com.protomaps.basemap.feature;
 
 import com.carrotsearch.hppc.LongLongHashMap;
 import java.io.*;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.function.LongUnaryOperator;
 import java.util.zip.GZIPInputStream;
 import javax.annotation.concurrent.Immutable;
 
 /**
- * An in-memory representation of the entire QRank database used for generalizing
- * {@link com.protomaps.basemap.layers.Pois}.
+ * A representation of the entire QRank database used for generalizing {@link com.protomaps.basemap.layers.Pois}.
  * <p>
- * Parses a copy of the gzipped QRank dataset into a long->long hash map that can be efficiently queried when processing
- * POI features.
+ * Either parses a copy of the gzipped QRank dataset into a long->long hash map, or memory-maps a {@link QrankIndex}
+ * converted from it, that can be efficiently queried when processing POI features.
  **/
 @Immutable
 public final class QrankDb {
 
-  private final LongLongHashMap db;
+  private final LongUnaryOperator ranks;
 
   public QrankDb(LongLongHashMap db) {
-    this.db = db;
+    this.ranks = db::get;
+  }
+
+  private QrankDb(LongUnaryOperator ranks) {
+    this.ranks = ranks;
   }
 
   public long get(long wikidataId) {
-    return this.db.get(wikidataId);
+    return this.ranks.applyAsLong(wikidataId);
   }
 
   public long get(String osmValue) {
-    try {
-      if (osmValue.contains(";")) {
-        osmValue = osmValue.split(";")[0];
-      }
-      long id = Long.parseLong(osmValue.substring(1));
-      return this.get(id);
-    } catch (NumberFormatException e) {
-      return 0;
-    }
+    long id = WikidataOverrides.parseId(osmValue);
+    return id < 0 ? 0 : this.get(id);
   }
 
   public static QrankDb empty() {
@@ -44,19 +42,27 @@ public final class QrankDb {
   }
 
   public static QrankDb fromCsv(Path csvPath) throws IOException {
-    GZIPInputStream gzip = new GZIPInputStream(new FileInputStream(csvPath.toFile()));
-    try (BufferedReader br = new BufferedReader(new InputStreamReader(gzip))) {
-      String content;
-      LongLongHashMap db = new LongLongHashMap();
-      String header = br.readLine(); // header
-      assert (header.equals("Entity,QRank"));
-      while ((content = br.readLine()) != null) {
-        var split = content.split(",");
-        long id = Long.parseLong(split[0].substring(1));
-        long rank = Long.parseLong(split[1]);
-        db.put(id, rank);
+    try (InputStream inputStream = new GZIPInputStream(Files.newInputStream(csvPath), 1 << 16)) {
+      var rows = QrankIndex.parseCsv(inputStream);
+      LongLongHashMap db = new LongLongHashMap(rows.ids().length);
+      for (int i = 0; i < rows.ids().length; i++) {
+        db.put(rows.ids()[i], rows.ranks()[i]);
       }
       return new QrankDb(db);
     }
   }
+
+  /**
+   * Parses a gzipped QRank CSV ending in {@code .gz}, or memory-maps any other file as a {@link QrankIndex}.
+   */
+  public static QrankDb load(Path path) throws IOException {
+    return path.getFileName().toString().endsWith(".gz") ? fromCsv(path) : fromIndex(path);
+  }
+
+  /**
+   * Memory-maps a QRank index written by {@link QrankIndex#convert}, without reading it into the heap.
+   */
+  public static QrankDb fromIndex(Path indexPath) throws IOException {
+    return new QrankDb(QrankIndex.map(indexPath)::get);
+  }
 }
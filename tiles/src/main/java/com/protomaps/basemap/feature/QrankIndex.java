@@ -0,0 +1,283 @@
+package com.protomaps.basemap.feature;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Binary form of the QRank dataset, memory-mapped by {@link QrankDb#fromIndex}.
+ * <p>
+ * The file holds the (wikidata id, rank) pairs sorted by id behind a small header. Mapping it keeps the ranks off the
+ * Java heap and lets concurrent builds share them through the page cache; lookups are an interpolation search, which
+ * needs only a few probes on the densely numbered wikidata ids. Run {@link #main} to convert a copy of the gzipped
+ * QRank CSV.
+ **/
+public final class QrankIndex {
+
+  private static final int MAGIC = 0x51524e4b; // "QRNK"
+  private static final int FORMAT_VERSION = 1;
+  private static final int HEADER_BYTES = 4 + 4 + 8;
+  private static final int ROW_BYTES = 8 + 8;
+  // rows per mapped buffer, keeping each buffer at 1 GiB
+  private static final int SEGMENT_ROWS = 1 << 26;
+  private static final int MAX_INTERPOLATION_STEPS = 8;
+  private static final int BATCH_LINES = 1 << 16;
+
+  private final MappedByteBuffer[] segments;
+  private final long count;
+
+  private QrankIndex(MappedByteBuffer[] segments, long count) {
+    this.segments = segments;
+    this.count = count;
+  }
+
+  /**
+   * The pairs of a QRank CSV, sorted by id without duplicates.
+   */
+  record Rows(long[] ids, long[] ranks) {}
+
+  private record Batch(long[] ids, long[] ranks, int size) {}
+
+  private static Batch parseBatch(String[] lines, int size) throws IOException {
+    long[] ids = new long[size];
+    long[] ranks = new long[size];
+    for (int i = 0; i < size; i++) {
+      String line = lines[i];
+      int comma = line.indexOf(',');
+      if (comma < 2 || line.charAt(0) != 'Q') {
+        throw new IOException("Unexpected QRank row: " + line);
+      }
+      try {
+        ids[i] = Long.parseLong(line, 1, comma, 10);
+        ranks[i] = Long.parseLong(line, comma + 1, line.length(), 10);
+      } catch (NumberFormatException e) {
+        throw new IOException("Unexpected QRank row: " + line, e);
+      }
+      if (ids[i] < 0 || ids[i] > Integer.MAX_VALUE) {
+        throw new IOException("Wikidata id out of range: " + line);
+      }
+    }
+    return new Batch(ids, ranks, size);
+  }
+
+  /**
+   * Parses a decompressed QRank CSV with the columns {@code Entity,QRank}, splitting the rows into batches that are
+   * parsed on all available processors while the next batch is read. Of rows with the same id, the last one wins.
+   */
+  static Rows parseCsv(InputStream inputStream) throws IOException {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8), 1 << 16);
+    String header = reader.readLine();
+    if (header != null && !header.equals("Entity,QRank")) {
+      throw new IOException("Unexpected QRank header: " + header);
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    List<Future<Batch>> futures = new ArrayList<>();
+    try {
+      String[] lines = new String[BATCH_LINES];
+      int size = 0;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.isEmpty()) {
+          continue;
+        }
+        lines[size++] = line;
+        if (size == BATCH_LINES) {
+          String[] batch = lines;
+          futures.add(executor.submit(() -> parseBatch(batch, BATCH_LINES)));
+          lines = new String[BATCH_LINES];
+          size = 0;
+        }
+      }
+      String[] batch = lines;
+      int batchSize = size;
+      futures.add(executor.submit(() -> parseBatch(batch, batchSize)));
+
+      List<Batch> batches = new ArrayList<>(futures.size());
+      for (Future<Batch> future : futures) {
+        batches.add(future.get());
+      }
+      return sorted(batches);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof IOException ioException ? ioException : new IOException(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static Rows sorted(List<Batch> batches) throws IOException {
+    long total = batches.stream().mapToLong(Batch::size).sum();
+    if (total > Integer.MAX_VALUE - 8) {
+      throw new IOException("Too many QRank rows: " + total);
+    }
+    long[] ranks = new long[(int) total];
+    // the id in the upper and the row number in the lower 32 bits, so that sorting keeps rows with equal ids in order
+    long[] keys = new long[(int) total];
+    int row = 0;
+    for (Batch batch : batches) {
+      for (int i = 0; i < batch.size(); i++) {
+        keys[row] = (batch.ids()[i] << 32) | row;
+        ranks[row] = batch.ranks()[i];
+        row++;
+      }
+    }
+    Arrays.parallelSort(keys);
+
+    int distinct = 0;
+    for (int i = 0; i < keys.length; i++) {
+      if (i == keys.length - 1 || (keys[i] >>> 32) != (keys[i + 1] >>> 32)) {
+        distinct++;
+      }
+    }
+    long[] sortedIds = new long[distinct];
+    long[] sortedRanks = new long[distinct];
+    int pos = 0;
+    for (int i = 0; i < keys.length; i++) {
+      if (i == keys.length - 1 || (keys[i] >>> 32) != (keys[i + 1] >>> 32)) {
+        sortedIds[pos] = keys[i] >>> 32;
+        sortedRanks[pos] = ranks[(int) keys[i]];
+        pos++;
+      }
+    }
+    return new Rows(sortedIds, sortedRanks);
+  }
+
+  /**
+   * Writes {@code rows} to {@code path}, replacing it atomically so concurrent readers never see a partial file.
+   */
+  static void write(Path path, Rows rows) throws IOException {
+    Path parent = path.toAbsolutePath().getParent();
+    Files.createDirectories(parent);
+    Path tmp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+    try (OutputStream fileStream = Files.newOutputStream(tmp);
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileStream, 1 << 16))) {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      out.writeLong(rows.ids().length);
+      for (int i = 0; i < rows.ids().length; i++) {
+        out.writeLong(rows.ids()[i]);
+        out.writeLong(rows.ranks()[i]);
+      }
+    }
+    Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Converts the gzipped QRank CSV at {@code csvPath} into an index at {@code path}, returning the number of ids.
+   */
+  public static long convert(Path csvPath, Path path) throws IOException {
+    Rows rows;
+    try (InputStream inputStream = new GZIPInputStream(Files.newInputStream(csvPath), 1 << 16)) {
+      rows = parseCsv(inputStream);
+    }
+    write(path, rows);
+    return rows.ids().length;
+  }
+
+  /**
+   * Memory-maps the index at {@code path}.
+   */
+  public static QrankIndex map(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long fileSize = channel.size();
+      if (fileSize < HEADER_BYTES) {
+        throw new IOException("Not a QRank index: " + path);
+      }
+      MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+      if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+        throw new IOException("Not a QRank index: " + path);
+      }
+      long count = header.getLong();
+      if (count < 0 || fileSize != HEADER_BYTES + count * ROW_BYTES) {
+        throw new IOException("Truncated QRank index: " + path);
+      }
+      MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((count + SEGMENT_ROWS - 1) / SEGMENT_ROWS)];
+      for (int i = 0; i < segments.length; i++) {
+        long first = (long) i * SEGMENT_ROWS;
+        long rows = Math.min(SEGMENT_ROWS, count - first);
+        segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + first * ROW_BYTES, rows * ROW_BYTES);
+      }
+      return new QrankIndex(segments, count);
+    }
+  }
+
+  public long size() {
+    return count;
+  }
+
+  private long idAt(long row) {
+    return segments[(int) (row / SEGMENT_ROWS)].getLong((int) (row % SEGMENT_ROWS) * ROW_BYTES);
+  }
+
+  private long rankAt(long row) {
+    return segments[(int) (row / SEGMENT_ROWS)].getLong((int) (row % SEGMENT_ROWS) * ROW_BYTES + 8);
+  }
+
+  /**
+   * Returns the rank of {@code wikidataId}, or 0 if it has none.
+   */
+  public long get(long wikidataId) {
+    long lo = 0;
+    long hi = count - 1;
+    int steps = 0;
+    while (lo <= hi) {
+      long loId = idAt(lo);
+      long hiId = idAt(hi);
+      if (wikidataId < loId || wikidataId > hiId) {
+        return 0;
+      }
+      long mid;
+      if (steps++ < MAX_INTERPOLATION_STEPS && hiId > loId) {
+        mid = lo + (long) ((double) (wikidataId - loId) / (hiId - loId) * (hi - lo));
+      } else {
+        // fall back to bisection where the ids are too unevenly spaced for interpolation to converge
+        mid = (lo + hi) >>> 1;
+      }
+      long midId = idAt(mid);
+      if (midId == wikidataId) {
+        return rankAt(mid);
+      } else if (midId < wikidataId) {
+        lo = mid + 1;
+      } else {
+        hi = mid - 1;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Converts a gzipped QRank CSV into an index.
+   * <p>
+   * Usage: {@code QrankIndex <qrank.csv.gz> <qrank.bin>}
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("Usage: QrankIndex <qrank.csv.gz> <qrank.bin>");
+      System.exit(1);
+    }
+    long count = convert(Path.of(args[0]), Path.of(args[1]));
+    System.out.println("Wrote " + count + " ranks to " + args[1]);
+  }
+}
@@ -0,0 +1,86 @@
+package com.protomaps.basemap.feature;
+
+import com.onthegomap.planetiler.reader.SourceFeature;
+import com.onthegomap.planetiler.stats.Counter;
+import com.onthegomap.planetiler.stats.Stats;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * The providers of the {@link Matcher.VirtualTag}s of a layer, which set the tags on a source feature when a
+ * {@link KeyDispatch} needs them.
+ *
+ * <p>
+ * How often each tag was computed, and how often the tags were not needed for a feature, is counted per layer and
+ * reported through {@link Stats} once {@link #registerStats} was called.
+ * </p>
+ */
+public final class VirtualTags {
+
+  private record Provider(Consumer<SourceFeature> provider, Counter.MultiThreadCounter evaluations,
+    Counter.MultiThreadCounter skipped) {}
+
+  private static final Map<String, Counter.MultiThreadCounter> evaluationCounters = new ConcurrentHashMap<>();
+  private static final Map<String, Counter.MultiThreadCounter> skippedCounters = new ConcurrentHashMap<>();
+
+  private final String layer;
+  private final Map<Matcher.VirtualTag, Provider> providers = new LinkedHashMap<>();
+
+  public VirtualTags(String layer) {
+    this.layer = layer;
+  }
+
+  private String label(Matcher.VirtualTag tag) {
+    return layer + ":" + tag.prefix();
+  }
+
+  /**
+   * Sets the provider of {@code tag}, which is expected to set the tags that {@code tag} covers on the feature, if any.
+   */
+  public VirtualTags provide(Matcher.VirtualTag tag, Consumer<SourceFeature> provider) {
+    String label = label(tag);
+    providers.put(tag, new Provider(provider,
+      evaluationCounters.computeIfAbsent(label, k -> Counter.newMultiThreadCounter()),
+      skippedCounters.computeIfAbsent(label, k -> Counter.newMultiThreadCounter())));
+    return this;
+  }
+
+  void evaluate(Matcher.VirtualTag tag, SourceFeature sf) {
+    Provider provider = providers.get(tag);
+    if (provider != null) {
+      provider.evaluations().inc();
+      provider.provider().accept(sf);
+    }
+  }
+
+  void skip(Matcher.VirtualTag tag) {
+    Provider provider = providers.get(tag);
+    if (provider != null) {
+      provider.skipped().inc();
+    }
+  }
+
+  /**
+   * Returns how often {@code tag} was computed by the providers of this layer.
+   */
+  public long evaluations(Matcher.VirtualTag tag) {
+    var counter = evaluationCounters.get(label(tag));
+    return counter == null ? 0 : counter.get();
+  }
+
+  /**
+   * Returns how often {@code tag} was not needed to match a feature of this layer.
+   */
+  public long skipped(Matcher.VirtualTag tag) {
+    var counter = skippedCounters.get(label(tag));
+    return counter == null ? 0 : counter.get();
+  }
+
+  public static void registerStats(Stats stats) {
+    stats.counter("virtual_tag_evaluations", "tag", () -> new TreeMap<>(evaluationCounters));
+    stats.counter("virtual_tag_skipped", "tag", () -> new TreeMap<>(skippedCounters));
+  }
+}
@@ -0,0 +1,204 @@
+package com.protomaps.basemap.feature;
+
+import com.carrotsearch.hppc.LongIntHashMap;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import javax.annotation.concurrent.Immutable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Curated zoom and rank overrides of features by their wikidata id, shared by the layers that label features.
+ * <p>
+ * The overrides are read from CSV rows {@code wikidata,minzoom,maxzoom,rankmax}, from the {@code places.csv} bundled
+ * in the jar and from an optional external file whose rows replace the bundled ones. The bundled rows are curated for
+ * places only, so other layers read just a file of their own, see {@link #fromFile}. Each row is kept as
+ * one int packed into a primitive map keyed by the numeric wikidata id, so that large override sets stay small on the
+ * heap, and {@link #get(String)} looks up an OSM {@code wikidata} tag without allocating.
+ **/
+@Immutable
+public final class WikidataOverrides {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(WikidataOverrides.class);
+
+  private static final String HEADER = "wikidata,minzoom,maxzoom,rankmax";
+
+  /**
+   * Returned by {@link #get} for ids without an override, no valid row packs into it since ranks are at least -1.
+   */
+  public static final int MISSING = Integer.MIN_VALUE;
+
+  private final LongIntHashMap entries;
+
+  private WikidataOverrides(LongIntHashMap entries) {
+    this.entries = entries;
+  }
+
+  public static WikidataOverrides empty() {
+    return new WikidataOverrides(new LongIntHashMap());
+  }
+
+  /**
+   * Reads the overrides bundled in the jar.
+   */
+  public static WikidataOverrides fromJarResource() {
+    LongIntHashMap entries = new LongIntHashMap();
+    try {
+      readJarResource(entries);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return new WikidataOverrides(entries);
+  }
+
+  /**
+   * Reads the overrides bundled in the jar, replacing or extending them with the rows of the CSV at {@code path}.
+   */
+  public static WikidataOverrides load(Path path) throws IOException {
+    LongIntHashMap entries = new LongIntHashMap();
+    readJarResource(entries);
+    try (InputStream inputStream = Files.newInputStream(path)) {
+      readCsv(inputStream, entries);
+    }
+    return new WikidataOverrides(entries);
+  }
+
+  /**
+   * Reads only the rows of the CSV at {@code path}, for layers that must not pick up the place overrides of features
+   * that share a wikidata id with a place.
+   */
+  public static WikidataOverrides fromFile(Path path) throws IOException {
+    LongIntHashMap entries = new LongIntHashMap();
+    try (InputStream inputStream = Files.newInputStream(path)) {
+      readCsv(inputStream, entries);
+    }
+    return new WikidataOverrides(entries);
+  }
+
+  private static void readJarResource(LongIntHashMap entries) throws IOException {
+    try (InputStream inputStream = WikidataOverrides.class.getResourceAsStream("/places.csv")) {
+      if (inputStream == null) {
+        LOGGER.error("File places.csv not found in resources.");
+        return;
+      }
+      readCsv(inputStream, entries);
+    }
+  }
+
+  /**
+   * Adds the rows of a CSV to {@code entries}, of rows with the same id the last one wins.
+   */
+  static void readCsv(InputStream inputStream, LongIntHashMap entries) throws IOException {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8), 1 << 16);
+    String header = reader.readLine();
+    if (header != null && !header.strip().equals(HEADER)) {
+      throw new IOException("Unexpected wikidata overrides header: " + header);
+    }
+    String line;
+    while ((line = reader.readLine()) != null) {
+      line = line.strip();
+      if (line.isEmpty()) {
+        continue;
+      }
+      int first = line.indexOf(',');
+      int second = first < 0 ? -1 : line.indexOf(',', first + 1);
+      int third = second < 0 ? -1 : line.indexOf(',', second + 1);
+      long id = third < 0 ? -1 : parseId(line, 0, first);
+      if (id < 0 || line.indexOf(',', third + 1) >= 0) {
+        throw new IOException("Unexpected wikidata overrides row: " + line);
+      }
+      int minZoom;
+      int maxZoom;
+      int rankMax;
+      try {
+        minZoom = Integer.parseInt(line, first + 1, second, 10);
+        maxZoom = Integer.parseInt(line, second + 1, third, 10);
+        rankMax = Integer.parseInt(line, third + 1, line.length(), 10);
+      } catch (NumberFormatException e) {
+        throw new IOException("Unexpected wikidata overrides row: " + line, e);
+      }
+      if (minZoom < -1 || minZoom > Byte.MAX_VALUE || maxZoom < -1 || maxZoom > Byte.MAX_VALUE || rankMax < -1 ||
+        rankMax > Short.MAX_VALUE) {
+        throw new IOException("Wikidata override out of range: " + line);
+      }
+      entries.put(id, pack(minZoom, maxZoom, rankMax));
+    }
+  }
+
+  static int pack(int minZoom, int maxZoom, int rankMax) {
+    return (minZoom & 0xff) | (maxZoom & 0xff) << 8 | rankMax << 16;
+  }
+
+  public static int minZoom(int entry) {
+    return (byte) entry;
+  }
+
+  /**
+   * Returns the min zoom of an override, or {@code fallback} if there is none or its row leaves the min zoom at -1.
+   */
+  public static int minZoom(int entry, int fallback) {
+    return entry == MISSING || minZoom(entry) < 0 ? fallback : minZoom(entry);
+  }
+
+  public static int maxZoom(int entry) {
+    return (byte) (entry >> 8);
+  }
+
+  public static int rankMax(int entry) {
+    return entry >> 16;
+  }
+
+  /**
+   * Returns the numeric id of the first wikidata id in an OSM {@code wikidata} tag like {@code Q123} or
+   * {@code Q123;Q456}, or -1 if it does not start with one.
+   */
+  public static long parseId(String value) {
+    if (value == null) {
+      return -1;
+    }
+    int end = value.indexOf(';');
+    return parseId(value, 0, end < 0 ? value.length() : end);
+  }
+
+  private static long parseId(String value, int start, int end) {
+    // at most 18 digits, so that the id cannot overflow
+    if (end - start < 2 || end - start > 19 || value.charAt(start) != 'Q') {
+      return -1;
+    }
+    long id = 0;
+    for (int i = start + 1; i < end; i++) {
+      char c = value.charAt(i);
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+      id = id * 10 + (c - '0');
+    }
+    return id;
+  }
+
+  /**
+   * Returns the packed override of a wikidata id, to be read with {@link #minZoom}, {@link #maxZoom} and
+   * {@link #rankMax}, or {@link #MISSING}.
+   */
+  public int get(long wikidataId) {
+    return entries.getOrDefault(wikidataId, MISSING);
+  }
+
+  /**
+   * Returns the packed override of the first id in an OSM {@code wikidata} tag, or {@link #MISSING}.
+   */
+  public int get(String osmValue) {
+    long id = parseId(osmValue);
+    return id < 0 ? MISSING : get(id);
+  }
+
+  public int size() {
+    return entries.size();
+  }
+}
@@ -16,11 +16,21 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.OptionalInt;
+import java.util.Set;
 
 public class AdminAreas implements ForwardingProfile.OsmRelationPreprocessor,
     ForwardingProfile.LayerPostProcessor {
 
   public static final String LAYER_NAME = "admin_areas";
+
+  /**
+   * The Natural Earth tables this layer reads, see {@link com.protomaps.basemap.feature.NeRouter}.
+   */
+  public static final Set<String> NE_TABLES = Set.of(
+    "ne_50m_admin_0_countries",
+    "ne_10m_admin_0_countries",
+    "ne_10m_admin_1_states_provinces"
+  );
   
   // Map of country names to ISO codes for countries with known issues
   private static final Map<String, String> COUNTRY_NAME_TO_ISO = new HashMap<>();
@@ -74,10 +84,7 @@ public class AdminAreas implements ForwardingProfile.OsmRelationPreprocessor,
     var sourceLayer = sf.getSourceLayer();
     
     // Process Natural Earth administrative boundaries
-    if (sf.canBePolygon() && (
-        sourceLayer.equals("ne_50m_admin_0_countries") || 
-        sourceLayer.equals("ne_10m_admin_0_countries") ||
-        sourceLayer.equals("ne_10m_admin_1_states_provinces"))) {
+    if (sf.canBePolygon()) {
       
       int minZoom = sourceLayer.equals("ne_50m_admin_0_countries") ? 0 : 4;
       int maxZoom = sourceLayer.equals("ne_50m_admin_0_countries") ? 3 : 5;
@@ -12,125 +12,124 @@ import com.onthegomap.planetiler.util.Parse;
 import com.protomaps.basemap.feature.FeatureId;
 import java.util.List;
 import java.util.OptionalInt;
+import java.util.Set;
 
 public class Boundaries implements ForwardingProfile.OsmRelationPreprocessor,
   ForwardingProfile.LayerPostProcessor {
 
   public static final String LAYER_NAME = "boundaries";
 
+  /**
+   * The Natural Earth tables this layer reads, see {@link com.protomaps.basemap.feature.NeRouter}.
+   */
+  public static final Set<String> NE_TABLES = Set.of(
+    "ne_10m_admin_0_boundary_lines_land",
+    "ne_10m_admin_0_boundary_lines_map_units",
+    "ne_10m_admin_0_boundary_lines_disputed_areas",
+    "ne_10m_admin_1_states_provinces_lines"
+  );
+
   @Override
   public String name() {
     return LAYER_NAME;
   }
 
   public void processNe(SourceFeature sf, FeatureCollector features) {
-    var sourceLayer = sf.getSourceLayer();
     var kind = "";
     var adminLevel = 2;
     var disputed = false;
-    var themeMinZoom = 0;
-    var themeMaxZoom = 0;
-
-    if (sourceLayer.equals("ne_10m_admin_0_boundary_lines_land") ||
-      sourceLayer.equals("ne_10m_admin_0_boundary_lines_map_units") ||
-      sourceLayer.equals("ne_10m_admin_0_boundary_lines_disputed_areas") ||
-      sourceLayer.equals("ne_10m_admin_1_states_provinces_lines")) {
-      themeMinZoom = 4;
-      themeMaxZoom = 5;
-      kind = "tz_boundary";
-    }
+    var themeMinZoom = 4;
+    var themeMaxZoom = 5;
 
     // TODO (nvkelso 2023-03-26)
     //      Compiler is fussy about booleans and strings, beware
-    if (!kind.isEmpty()) {
-      switch (sf.getString("featurecla")) {
-        case "Disputed (please verify)" -> {
-          kind = "country";
-          disputed = true;
-        }
-        case "Indefinite (please verify)" -> {
-          kind = "country";
-          disputed = true;
-        }
-        case "Indeterminant frontier" -> {
-          kind = "country";
-          disputed = true;
-        }
-        case "International boundary (verify)" -> kind = "country";
-        case "Lease limit" -> {
-          kind = "lease_limit";
-          adminLevel = 3;
-        }
-        case "Line of control (please verify)" -> {
-          kind = "country";
-          disputed = true;
-        }
-        case "Overlay limit" -> {
-          kind = "overlay_limit";
-          adminLevel = 3;
-        }
-        case "Unrecognized" -> kind = "unrecognized_country";
-        case "Map unit boundary" -> {
-          kind = "map_unit";
-          adminLevel = 3;
-        }
-        case "Breakaway" -> {
-          kind = "unrecognized_country";
-          adminLevel = 3;
-        }
-        case "Claim boundary" -> {
-          kind = "unrecognized_country";
-          adminLevel = 3;
-        }
-        case "Elusive frontier" -> {
-          kind = "unrecognized_country";
-          adminLevel = 3;
-        }
-        case "Reference line" -> {
-          kind = "unrecognized_country";
-          adminLevel = 3;
-        }
-        case "Admin-1 region boundary" -> {
-          kind = "macroregion";
-          adminLevel = 3;
-        }
-        case "Admin-1 boundary" -> {
-          kind = "region";
-          adminLevel = 4;
-        }
-        case "Admin-1 statistical boundary" -> {
-          kind = "region";
-          adminLevel = 4;
-        }
-        case "Admin-1 statistical meta bounds" -> {
-          kind = "region";
-          adminLevel = 4;
-        }
-        case "1st Order Admin Lines" -> {
-          kind = "region";
-          adminLevel = 4;
-        }
-        case "Unrecognized Admin-1 region boundary" -> {
-          kind = "unrecognized_macroregion";
-          adminLevel = 4;
-        }
-        case "Unrecognized Admin-1 boundary" -> {
-          kind = "unrecognized_region";
-          adminLevel = 4;
-        }
-        case "Unrecognized Admin-1 statistical boundary" -> {
-          kind = "unrecognized_region";
-          adminLevel = 4;
-        }
-        case "Unrecognized Admin-1 statistical meta bounds" -> {
-          kind = "unrecognized_region";
-          adminLevel = 4;
-        }
-        default -> kind = "";
+    switch (sf.getString("featurecla")) {
+      case "Disputed (please verify)" -> {
+        kind = "country";
+        disputed = true;
+      }
+      case "Indefinite (please verify)" -> {
+        kind = "country";
+        disputed = true;
+      }
+      case "Indeterminant frontier" -> {
+        kind = "country";
+        disputed = true;
+      }
+      case "International boundary (verify)" -> kind = "country";
+      case "Lease limit" -> {
+        kind = "lease_limit";
+        adminLevel = 3;
+      }
+      case "Line of control (please verify)" -> {
+        kind = "country";
+        disputed = true;
+      }
+      case "Overlay limit" -> {
+        kind = "overlay_limit";
+        adminLevel = 3;
+      }
+      case "Unrecognized" -> kind = "unrecognized_country";
+      case "Map unit boundary" -> {
+        kind = "map_unit";
+        adminLevel = 3;
+      }
+      case "Breakaway" -> {
+        kind = "unrecognized_country";
+        adminLevel = 3;
+      }
+      case "Claim boundary" -> {
+        kind = "unrecognized_country";
+        adminLevel = 3;
+      }
+      case "Elusive frontier" -> {
+        kind = "unrecognized_country";
+        adminLevel = 3;
+      }
+      case "Reference line" -> {
+        kind = "unrecognized_country";
+        adminLevel = 3;
+      }
+      case "Admin-1 region boundary" -> {
+        kind = "macroregion";
+        adminLevel = 3;
+      }
+      case "Admin-1 boundary" -> {
+        kind = "region";
+        adminLevel = 4;
+      }
+      case "Admin-1 statistical boundary" -> {
+        kind = "region";
+        adminLevel = 4;
+      }
+      case "Admin-1 statistical meta bounds" -> {
+        kind = "region";
+        adminLevel = 4;
+      }
+      case "1st Order Admin Lines" -> {
+        kind = "region";
+        adminLevel = 4;
+      }
+      case "Unrecognized Admin-1 region boundary" -> {
+        kind = "unrecognized_macroregion";
+        adminLevel = 4;
+      }
+      case "Unrecognized Admin-1 boundary" -> {
+        kind = "unrecognized_region";
+        adminLevel = 4;
+      }
+      case "Unrecognized Admin-1 statistical boundary" -> {
+        kind = "unrecognized_region";
+        adminLevel = 4;
+      }
+      case "Unrecognized Admin-1 statistical meta bounds" -> {
+        kind = "unrecognized_region";
+        adminLevel = 4;
       }
+      default -> kind = "";
     }
 
-    if (sf.canBeLine() && sf.getString("min_zoom") != null && (!kind.isEmpty() && !kind.equals("tz_boundary"))) {
+    if (sf.canBeLine() && sf.getString("min_zoom") != null && !kind.isEmpty()) {
       var minZoom = Double.parseDouble(sf.getString("min_zoom")) - 1.0;
 
       var line = features.line(this.name())
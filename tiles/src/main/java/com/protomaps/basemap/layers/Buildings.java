@@ -16,6 +16,7 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 public class Buildings implements ForwardingProfile.LayerPostProcessor {
@@ -25,6 +26,11 @@ public class Buildings implements ForwardingProfile.LayerPostProcessor {
 
   public static final String LAYER_NAME = "buildings";
 
+  /**
+   * The tag keys of the OSM features this layer can use, see {@link com.protomaps.basemap.feature.OsmRouter}.
+   */
+  public static final Set<String> OSM_KEYS = Set.of("building", "building:part", "addr:housenumber");
+
   @Override
   public String name() {
     return LAYER_NAME;
@@ -138,7 +144,8 @@ public class Buildings implements ForwardingProfile.LayerPostProcessor {
 
       return buildings;
     }
-    items = Area.filterArea(items, 0);
+    // no minimum area: small buildings still merge into blocks below, which then drops what remains too small
+    items = Area.filterArea(LAYER_NAME, zoom, items, 0);
 
     if (zoom >= 15)
       return items;
@@ -9,12 +9,23 @@ import com.onthegomap.planetiler.reader.SourceFeature;
 import com.protomaps.basemap.feature.FeatureId;
 import com.protomaps.basemap.names.OsmNames;
 import java.util.List;
+import java.util.Set;
 
 @SuppressWarnings("java:S1192") // Duplicated string literals
 public class Earth implements ForwardingProfile.LayerPostProcessor {
 
   public static final String LAYER_NAME = "earth";
 
+  /**
+   * The tag keys of the OSM features this layer can use, see {@link com.protomaps.basemap.feature.OsmRouter}.
+   */
+  public static final Set<String> OSM_KEYS = Set.of("natural", "place");
+
+  /**
+   * The Natural Earth tables this layer reads, see {@link com.protomaps.basemap.feature.NeRouter}.
+   */
+  public static final Set<String> NE_TABLES = Set.of("ne_50m_land", "ne_10m_land");
+
   public static final double BUFFER = 0.0625;
   public static final double MIN_AREA = 0.8;
 
@@ -37,9 +48,6 @@ public class Earth implements ForwardingProfile.LayerPostProcessor {
 
   public void processNe(SourceFeature sf, FeatureCollector features) {
     String sourceLayer = sf.getSourceLayer();
-    if (!(sourceLayer.equals("ne_50m_land") || sourceLayer.equals("ne_10m_land"))) {
-      return;
-    }
     int minZoom = sourceLayer.equals("ne_50m_land") ? 0 : 4;
     int maxZoom = sourceLayer.equals("ne_50m_land") ? 3 : 5;
 
@@ -8,6 +8,7 @@ import com.onthegomap.planetiler.geo.GeometryException;
 import com.onthegomap.planetiler.reader.SourceFeature;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.locationtech.jts.geom.Point;
 
 @SuppressWarnings("java:S1192") // Duplicated string literals
@@ -23,21 +24,19 @@ public class Landcover implements ForwardingProfile.LayerPostProcessor {
     // Daylight landcover uses ESA WorldCover which only goes to a latitude of roughly 80 deg S.
     // Parts of Antarctica therefore get no landcover = glacier from Daylight.
     // To fix this, we add glaciated areas from Natural Earth in Antarctica.
-    if (sf.getSourceLayer().equals("ne_10m_glaciated_areas")) {
-      try {
-        Point centroid = (Point) sf.centroid();
-        // Web Mercator Y = 0.7 is roughly 60 deg South, i.e., Antarctica.
-        if (centroid.getY() > 0.7) {
-          features.polygon(LAYER_NAME)
-            .setId(1)
-            .setAttr("kind", "glacier")
-            .setMaxZoom(7)
-            .setMinPixelSize(1.0)
-            .setPixelTolerance(Earth.PIXEL_TOLERANCE);
-        }
-      } catch (GeometryException e) {
-        e.log("Error: " + e);
+    try {
+      Point centroid = (Point) sf.centroid();
+      // Web Mercator Y = 0.7 is roughly 60 deg South, i.e., Antarctica.
+      if (centroid.getY() > 0.7) {
+        features.polygon(LAYER_NAME)
+          .setId(1)
+          .setAttr("kind", "glacier")
+          .setMaxZoom(7)
+          .setMinPixelSize(1.0)
+          .setPixelTolerance(Earth.PIXEL_TOLERANCE);
       }
+    } catch (GeometryException e) {
+      e.log("Error: " + e);
     }
   }
 
@@ -59,6 +58,11 @@ public class Landcover implements ForwardingProfile.LayerPostProcessor {
 
   public static final String LAYER_NAME = "landcover";
 
+  /**
+   * The Natural Earth tables this layer reads, see {@link com.protomaps.basemap.feature.NeRouter}.
+   */
+  public static final Set<String> NE_TABLES = Set.of("ne_10m_glaciated_areas");
+
   @Override
   public String name() {
     return LAYER_NAME;
@@ -11,13 +11,13 @@ import com.onthegomap.planetiler.FeatureCollector;
 import com.onthegomap.planetiler.FeatureMerge;
 import com.onthegomap.planetiler.ForwardingProfile;
 import com.onthegomap.planetiler.VectorTile;
-import com.onthegomap.planetiler.expression.MultiExpression;
 import com.onthegomap.planetiler.geo.GeometryException;
 import com.onthegomap.planetiler.reader.SourceFeature;
 import com.protomaps.basemap.feature.FeatureId;
+import com.protomaps.basemap.feature.KeyDispatch;
 import com.protomaps.basemap.postprocess.Area;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 
 
 public class Landuse implements ForwardingProfile.LayerPostProcessor {
@@ -61,7 +61,7 @@ public class Landuse implements ForwardingProfile.LayerPostProcessor {
       Wildlife Sanctuary
     """;
 
-  private static final MultiExpression.Index<Map<String, Object>> index = MultiExpression.ofOrdered(List.of(
+  private static final KeyDispatch index = KeyDispatch.ofOrdered("landuse", List.of(
     rule(
       with("""
           aeroway
@@ -234,7 +234,12 @@ public class Landuse implements ForwardingProfile.LayerPostProcessor {
       with("protection_title", "National Park"),
       use("kind", "national_park")
     )
-  )).index();
+  ));
+
+  /**
+   * The tag keys of the OSM features this layer can use, see {@link com.protomaps.basemap.feature.OsmRouter}.
+   */
+  public static final Set<String> OSM_KEYS = index.keys();
 
   public void processOsm(SourceFeature sf, FeatureCollector features) {
     if (sf.canBePolygon()) {
@@ -266,22 +271,21 @@ public class Landuse implements ForwardingProfile.LayerPostProcessor {
     return LAYER_NAME;
   }
 
+  // square tile pixels, 400 units of the 4096 tile extent
+  private static final double MIN_AREA = 400d / (4096 * 4096) * (256 * 256);
+
   @Override
   public List<VectorTile.Feature> postProcess(int zoom, List<VectorTile.Feature> items) throws GeometryException {
     if (zoom == 15)
       return items;
-    int minArea = 400 / (4096 * 4096) * (256 * 256);
-    if (zoom == 6)
-      minArea = 600 / (4096 * 4096) * (256 * 256);
-    else if (zoom <= 5)
-      minArea = 800 / (4096 * 4096) * (256 * 256);
-    items = Area.filterArea(items, minArea);
 
     // We only care about park boundaries inside groups of adjacent parks at higher zooms when they are labeled
-    // so at lower zooms we merge them to reduce file size
+    // so at lower zooms we merge them to reduce file size. Small parcels are kept until they are merged, the merge
+    // drops what is still smaller than 3.125 square pixels, 800 units of the 4096 tile extent, afterwards.
     if (zoom <= 6) {
       return FeatureMerge.mergeNearbyPolygons(items, 3.125, 3.125, 0.5, 0.5);
     }
+    items = Area.filterArea(LAYER_NAME, zoom, items, MIN_AREA);
     return items;
   }
 }
@@ -1,48 +1,63 @@
 package com.protomaps.basemap.layers;
 
 import static com.protomaps.basemap.feature.Matcher.fromTag;
-import static com.protomaps.basemap.feature.Matcher.getInteger;
-import static com.protomaps.basemap.feature.Matcher.getString;
+import static com.protomaps.basemap.feature.Matcher.resolve;
 import static com.protomaps.basemap.feature.Matcher.rule;
+import static com.protomaps.basemap.feature.Matcher.slot;
 import static com.protomaps.basemap.feature.Matcher.use;
+import static com.protomaps.basemap.feature.Matcher.virtualTag;
 import static com.protomaps.basemap.feature.Matcher.with;
 import static com.protomaps.basemap.feature.Matcher.without;
 
 import com.onthegomap.planetiler.FeatureCollector;
 import com.onthegomap.planetiler.ForwardingProfile;
 import com.onthegomap.planetiler.VectorTile;
-import com.onthegomap.planetiler.expression.MultiExpression;
 import com.onthegomap.planetiler.geo.GeometryException;
 import com.onthegomap.planetiler.reader.SourceFeature;
 import com.onthegomap.planetiler.util.SortKey;
 import com.onthegomap.planetiler.util.ZoomFunction;
 import com.protomaps.basemap.feature.CountryCoder;
 import com.protomaps.basemap.feature.FeatureId;
+import com.protomaps.basemap.feature.KeyDispatch;
+import com.protomaps.basemap.feature.Matcher;
+import com.protomaps.basemap.feature.VirtualTags;
+import com.protomaps.basemap.feature.WikidataOverrides;
 import com.protomaps.basemap.names.OsmNames;
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import java.util.Set;
 
 public class Places implements ForwardingProfile.LayerPostProcessor {
 
-  private static final Logger LOGGER = LoggerFactory.getLogger(Places.class);
-
   private CountryCoder countryCoder;
 
-  public Places(CountryCoder countryCoder) {
+  private final WikidataOverrides wikidataOverrides;
+
+  private final VirtualTags virtualTags;
+
+  public Places(CountryCoder countryCoder, WikidataOverrides wikidataOverrides) {
     this.countryCoder = countryCoder;
+    this.wikidataOverrides = wikidataOverrides;
+    this.virtualTags = new VirtualTags(LAYER_NAME).provide(COUNTRY, this::setCountry);
   }
 
   public static final String LAYER_NAME = "places";
 
-  private static final MultiExpression.Index<Map<String, Object>> index = MultiExpression.ofOrdered(List.of(
+  /**
+   * The tag keys of the OSM features this layer can use, see {@link com.protomaps.basemap.feature.OsmRouter}.
+   */
+  public static final Set<String> OSM_KEYS = Set.of("place");
+
+  private static final Matcher.Slot KIND = slot("kind");
+  private static final Matcher.Slot KIND_RANK = slot("kindRank");
+  private static final Matcher.Slot MIN_ZOOM = slot("minZoom");
+  private static final Matcher.Slot MAX_ZOOM = slot("maxZoom");
+  private static final Matcher.Slot POPULATION = slot("population");
+
+  private static final Matcher.VirtualTag COUNTRY = virtualTag("_country");
+
+  private static final KeyDispatch index = KeyDispatch.ofOrdered("places", List.of(
     rule(
       with("population"),
       use("population", fromTag("population"))
@@ -197,40 +212,7 @@ public class Places implements ForwardingProfile.LayerPostProcessor {
       use("maxZoom", 15),
       use("kindRank", 11)
     )
-  )).index();
-
-  private record WikidataConfig(int minZoom, int maxZoom, int rankMax) {}
-
-  private static Map<String, WikidataConfig> readWikidataConfigs() {
-    Map<String, WikidataConfig> wikidataConfigs = new HashMap<>();
-    InputStream inputStream = Places.class.getResourceAsStream("/places.csv");
-
-    if (inputStream == null) {
-      LOGGER.error("File places.csv not found in resources.");
-      return wikidataConfigs;
-    }
-
-    try (BufferedReader br = new BufferedReader(new InputStreamReader(inputStream))) {
-      String line = br.readLine(); // skip header
-      line = br.readLine();
-
-      while (line != null) {
-        List<String> columns = List.of(line.split(","));
-        String wikidata = columns.get(0);
-        Integer minZoom = Integer.parseInt(columns.get(1));
-        Integer maxZoom = Integer.parseInt(columns.get(2));
-        Integer rankMax = Integer.parseInt(columns.get(3));
-        wikidataConfigs.put(wikidata, new WikidataConfig(minZoom, maxZoom, rankMax));
-        line = br.readLine();
-      }
-
-    } catch (IOException e) {
-      LOGGER.error("IOException", e);
-    }
-    return wikidataConfigs;
-  }
-
-  private static final Map<String, WikidataConfig> WIKIDATA_CONFIGS = readWikidataConfigs();
+  ), COUNTRY);
 
   @Override
   public String name() {
@@ -271,11 +253,7 @@ public class Places implements ForwardingProfile.LayerPostProcessor {
       15, 3
     ), 0);
 
-  public void processOsm(SourceFeature sf, FeatureCollector features) {
-    if (!sf.isPoint() || !sf.hasTag("name") || !sf.hasTag("place")) {
-      return;
-    }
-
+  private void setCountry(SourceFeature sf) {
     try {
       Optional<String> code = countryCoder.getCountryCode(sf.latLonGeometry());
       if (code.isPresent()) {
@@ -284,21 +262,28 @@ public class Places implements ForwardingProfile.LayerPostProcessor {
     } catch (GeometryException e) {
       // do nothing
     }
+  }
+
+  public void processOsm(SourceFeature sf, FeatureCollector features) {
+    if (!sf.isPoint() || !sf.hasTag("name") || !sf.hasTag("place")) {
+      return;
+    }
 
-    var matches = index.getMatches(sf);
+    var matches = index.getMatches(sf, virtualTags);
     if (matches.isEmpty()) {
       return;
     }
 
-    String kind = getString(sf, matches, "kind", null);
+    var values = resolve(sf, matches);
+    String kind = values.getString(KIND, null);
     if (kind == null) {
       return;
     }
 
-    Integer kindRank = getInteger(sf, matches, "kindRank", 6);
-    Integer minZoom = getInteger(sf, matches, "minZoom", 12);
-    Integer maxZoom = getInteger(sf, matches, "maxZoom", 15);
-    Integer population = getInteger(sf, matches, "population", 0);
+    Integer kindRank = values.getInteger(KIND_RANK, 6);
+    Integer minZoom = values.getInteger(MIN_ZOOM, 12);
+    Integer maxZoom = values.getInteger(MAX_ZOOM, 15);
+    Integer population = values.getInteger(POPULATION, 0);
 
     int populationRank = 0;
 
@@ -329,15 +314,15 @@ public class Places implements ForwardingProfile.LayerPostProcessor {
       }
     }
 
-    if (WIKIDATA_CONFIGS.containsKey(sf.getString("wikidata"))) {
-      var wikidataConfig = WIKIDATA_CONFIGS.get(sf.getString("wikidata"));
+    int wikidataOverride = wikidataOverrides.get(sf.getString("wikidata"));
+    if (wikidataOverride != WikidataOverrides.MISSING) {
       if (kind.equals("country") || kind.equals("region")) {
-        minZoom = wikidataConfig.minZoom();
-        maxZoom = wikidataConfig.maxZoom();
+        minZoom = WikidataOverrides.minZoom(wikidataOverride);
+        maxZoom = WikidataOverrides.maxZoom(wikidataOverride);
       }
       if (kind.equals("locality")) {
-        minZoom = wikidataConfig.minZoom();
-        populationRank = wikidataConfig.rankMax();
+        minZoom = WikidataOverrides.minZoom(wikidataOverride);
+        populationRank = WikidataOverrides.rankMax(wikidataOverride);
       }
     }
 
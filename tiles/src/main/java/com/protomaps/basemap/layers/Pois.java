@@ -1,6 +1,9 @@
 package com.protomaps.basemap.layers;
 
 import static com.onthegomap.planetiler.util.Parse.parseDoubleOrNull;
+import static com.protomaps.basemap.feature.Matcher.rule;
+import static com.protomaps.basemap.feature.Matcher.with;
+import static com.protomaps.basemap.feature.Matcher.without;
 
 import com.onthegomap.planetiler.FeatureCollector;
 import com.onthegomap.planetiler.ForwardingProfile;
@@ -8,18 +11,25 @@ import com.onthegomap.planetiler.VectorTile;
 import com.onthegomap.planetiler.geo.GeoUtils;
 import com.onthegomap.planetiler.geo.GeometryException;
 import com.onthegomap.planetiler.reader.SourceFeature;
+import com.onthegomap.planetiler.util.SortKey;
 import com.onthegomap.planetiler.util.ZoomFunction;
 import com.protomaps.basemap.feature.FeatureId;
+import com.protomaps.basemap.feature.KeyDispatch;
 import com.protomaps.basemap.feature.QrankDb;
+import com.protomaps.basemap.feature.WikidataOverrides;
 import com.protomaps.basemap.names.OsmNames;
 import java.util.List;
+import java.util.Set;
 
 public class Pois implements ForwardingProfile.LayerPostProcessor {
 
   private QrankDb qrankDb;
 
-  public Pois(QrankDb qrankDb) {
+  private final WikidataOverrides wikidataOverrides;
+
+  public Pois(QrankDb qrankDb, WikidataOverrides wikidataOverrides) {
     this.qrankDb = qrankDb;
+    this.wikidataOverrides = wikidataOverrides;
   }
 
   public static final String LAYER_NAME = "pois";
@@ -32,29 +42,65 @@ public class Pois implements ForwardingProfile.LayerPostProcessor {
   private static final double WORLD_AREA_FOR_70K_SQUARE_METERS =
     Math.pow(GeoUtils.metersToPixelAtEquator(0, Math.sqrt(70_000)) / 256d, 2);
 
+  // features that can become a POI, most features have none of these keys and are rejected by the key dispatch
+  private static final KeyDispatch filter = KeyDispatch.of("pois", List.of(
+    rule(with("aeroway", "aerodrome")),
+    rule(with("amenity")),
+    rule(with("attraction")),
+    rule(with("boundary", "national_park", "protected_area")),
+    rule(with("craft")),
+    rule(with("historic")),
+    rule(with("landuse", "cemetery", "recreation_ground", "winter_sports", "quarry", "park", "forest", "military",
+      "village_green", "allotments")),
+    rule(with("leisure")),
+    rule(with("natural", "beach", "peak")),
+    rule(with("railway", "station")),
+    rule(with("highway", "bus_stop")),
+    rule(with("shop")),
+    rule(with("tourism"), without("historic", "district"))
+  ));
+
+  /**
+   * The tag keys of the OSM features this layer can use, see {@link com.protomaps.basemap.feature.OsmRouter}.
+   */
+  public static final Set<String> OSM_KEYS = filter.keys();
+
+  // POIs with at least this QRank are shown from the zoom at the same position, whatever their kind and size
+  private static final long[] QRANK_THRESHOLDS = {10_000_000, 1_000_000, 100_000, 10_000};
+  private static final int[] QRANK_MIN_ZOOMS = {10, 11, 12, 13};
+
+  // Promotes well known POIs to an earlier zoom, never demoting them
+  static int promoteByQrank(int minZoom, long qrank) {
+    for (int i = 0; i < QRANK_THRESHOLDS.length; i++) {
+      if (qrank >= QRANK_THRESHOLDS[i]) {
+        return Math.min(minZoom, QRANK_MIN_ZOOMS[i]);
+      }
+    }
+    return minZoom;
+  }
+
+  // Evaluates POI layer sort ordering of inputs into an integer for the sort-key field.
+  static int getSortKey(int minZoom, long qrank) {
+    return SortKey
+      // Order ASCENDING (POIs shown at earlier zooms win)
+      .orderByInt(minZoom, 0, 20)
+      // Order DESCENDING (better known POIs win, which the label grid keeps in dense downtown areas)
+      .thenByLog(qrank, 100_000_000, 1, 100)
+      .get();
+  }
+
   public void processOsm(SourceFeature sf, FeatureCollector features) {
-    if ((sf.isPoint() || sf.canBePolygon()) && (sf.hasTag("aeroway", "aerodrome") ||
-      sf.hasTag("amenity") ||
-      sf.hasTag("attraction") ||
-      sf.hasTag("boundary", "national_park", "protected_area") ||
-      sf.hasTag("craft") ||
-      sf.hasTag("historic") ||
-      sf.hasTag("landuse", "cemetery", "recreation_ground", "winter_sports", "quarry", "park", "forest", "military",
-        "village_green", "allotments") ||
-      sf.hasTag("leisure") ||
-      sf.hasTag("natural", "beach", "peak") ||
-      sf.hasTag("railway", "station") ||
-      sf.hasTag("highway", "bus_stop") ||
-      sf.hasTag("shop") ||
-      sf.hasTag("tourism") &&
-        (!sf.hasTag("historic", "district")))) {
+    if ((sf.isPoint() || sf.canBePolygon()) && !filter.getMatches(sf).isEmpty()) {
       String kind = "other";
       String kindDetail = "";
       Integer minZoom = 15;
 
-      String wikidata = sf.getString("wikidata");
-      if (wikidata != null) {
-        qrankDb.get(wikidata);
+      long qrank = 0;
+      int wikidataOverride = WikidataOverrides.MISSING;
+      long wikidataId = WikidataOverrides.parseId(sf.getString("wikidata"));
+      if (wikidataId >= 0) {
+        qrank = qrankDb.get(wikidataId);
+        wikidataOverride = wikidataOverrides.get(wikidataId);
       }
 
       if (sf.hasTag("aeroway", "aerodrome")) {
@@ -434,6 +480,8 @@ public class Pois implements ForwardingProfile.LayerPostProcessor {
           }
         }
 
+        minZoom = WikidataOverrides.minZoom(wikidataOverride, promoteByQrank(minZoom, qrank));
+
         var polyLabelPosition = features.pointOnSurface(this.name())
           // all POIs should receive their IDs at all zooms
           // (there is no merging of POIs like with lines and polygons in other layers)
@@ -465,10 +513,11 @@ public class Pois implements ForwardingProfile.LayerPostProcessor {
 
         // Server sort features so client label collisions are pre-sorted
         // NOTE: (nvkelso 20230627) This could also include other params like the name
-        polyLabelPosition.setSortKey(minZoom * 1000);
+        polyLabelPosition.setSortKey(getSortKey(minZoom, qrank));
 
         // Even with the categorical zoom bucketing above, we end up with too dense a point feature spread in downtown
-        // areas, so cull the labels which wouldn't label at earlier zooms than the max_zoom of 15
+        // areas, so cull the labels which wouldn't label at earlier zooms than the max_zoom of 15, keeping the one
+        // with the lowest sort key and so the best known one in each grid cell
         polyLabelPosition.setPointLabelGridSizeAndLimit(14, 10, 1);
 
         // and also whenever you set a label grid size limit, make sure you increase the buffer size so no
@@ -476,6 +525,8 @@ public class Pois implements ForwardingProfile.LayerPostProcessor {
         polyLabelPosition.setBufferPixelOverrides(ZoomFunction.maxZoom(14, 32));
 
       } else if (sf.isPoint()) {
+        minZoom = WikidataOverrides.minZoom(wikidataOverride, promoteByQrank(minZoom, qrank));
+
         var pointFeature = features.point(this.name())
           // all POIs should receive their IDs at all zooms
           // (there is no merging of POIs like with lines and polygons in other layers)
@@ -531,10 +582,11 @@ public class Pois implements ForwardingProfile.LayerPostProcessor {
 
         // Server sort features so client label collisions are pre-sorted
         // NOTE: (nvkelso 20230627) This could also include other params like the name
-        pointFeature.setSortKey(minZoom * 1000);
+        pointFeature.setSortKey(getSortKey(minZoom, qrank));
 
         // Even with the categorical zoom bucketing above, we end up with too dense a point feature spread in downtown
-        // areas, so cull the labels which wouldn't label at earlier zooms than the max_zoom of 15
+        // areas, so cull the labels which wouldn't label at earlier zooms than the max_zoom of 15, keeping the one
+        // with the lowest sort key and so the best known one in each grid cell
         pointFeature.setPointLabelGridSizeAndLimit(14, 10, 1);
 
         // and also whenever you set a label grid size limit, make sure you increase the buffer size so no
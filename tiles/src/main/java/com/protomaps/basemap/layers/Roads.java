@@ -1,10 +1,11 @@
 package com.protomaps.basemap.layers;
 
 import static com.protomaps.basemap.feature.Matcher.fromTag;
-import static com.protomaps.basemap.feature.Matcher.getInteger;
-import static com.protomaps.basemap.feature.Matcher.getString;
+import static com.protomaps.basemap.feature.Matcher.resolve;
 import static com.protomaps.basemap.feature.Matcher.rule;
+import static com.protomaps.basemap.feature.Matcher.slot;
 import static com.protomaps.basemap.feature.Matcher.use;
+import static com.protomaps.basemap.feature.Matcher.virtualTag;
 import static com.protomaps.basemap.feature.Matcher.with;
 import static com.protomaps.basemap.postprocess.LinkSimplify.linkSimplify;
 
@@ -12,29 +13,46 @@ import com.onthegomap.planetiler.FeatureCollector;
 import com.onthegomap.planetiler.FeatureMerge;
 import com.onthegomap.planetiler.ForwardingProfile;
 import com.onthegomap.planetiler.VectorTile;
-import com.onthegomap.planetiler.expression.MultiExpression;
 import com.onthegomap.planetiler.geo.GeometryException;
 import com.onthegomap.planetiler.reader.SourceFeature;
 import com.onthegomap.planetiler.reader.osm.OsmElement;
 import com.onthegomap.planetiler.reader.osm.OsmRelationInfo;
 import com.protomaps.basemap.feature.CountryCoder;
 import com.protomaps.basemap.feature.FeatureId;
+import com.protomaps.basemap.feature.KeyDispatch;
+import com.protomaps.basemap.feature.Matcher;
+import com.protomaps.basemap.feature.VirtualTags;
 import com.protomaps.basemap.locales.CartographicLocale;
 import com.protomaps.basemap.locales.US;
 import com.protomaps.basemap.names.OsmNames;
+import com.protomaps.basemap.postprocess.LinkSimplify;
 import java.util.*;
 
 public class Roads implements ForwardingProfile.LayerPostProcessor, ForwardingProfile.OsmRelationPreprocessor {
 
   private CountryCoder countryCoder;
 
+  private final VirtualTags virtualTags;
+
   public Roads(CountryCoder countryCoder) {
     this.countryCoder = countryCoder;
+    this.virtualTags = new VirtualTags(LAYER_NAME)
+      .provide(ROUTE_NETWORKS, Roads::setRouteNetworks)
+      .provide(COUNTRY, this::setCountry);
   }
 
   public static final String LAYER_NAME = "roads";
 
-  private static final MultiExpression.Index<Map<String, Object>> indexHighways = MultiExpression.of(List.of(
+  private static final Matcher.Slot KIND = slot("kind");
+  private static final Matcher.Slot KIND_DETAIL = slot("kindDetail");
+  private static final Matcher.Slot MIN_ZOOM = slot("minZoom");
+  private static final Matcher.Slot MIN_ZOOM_SHIELD_TEXT = slot("minZoomShieldText");
+  private static final Matcher.Slot MIN_ZOOM_NAMES = slot("minZoomNames");
+
+  private static final Matcher.VirtualTag ROUTE_NETWORKS = virtualTag("_r_network_");
+  private static final Matcher.VirtualTag COUNTRY = virtualTag("_country");
+
+  private static final KeyDispatch indexHighways = KeyDispatch.of("roads_highways", List.of(
     rule(
       with(),
       use("kindDetail", fromTag("highway"))
@@ -211,9 +229,9 @@ public class Roads implements ForwardingProfile.LayerPostProcessor, ForwardingPr
       with("_r_network_US:I"),
       use("minZoom", 3)
     )
-  )).index();
+  ), ROUTE_NETWORKS, COUNTRY);
 
-  private static final MultiExpression.Index<Map<String, Object>> indexNonHighways = MultiExpression.of(List.of(
+  private static final KeyDispatch indexNonHighways = KeyDispatch.of("roads_non_highways", List.of(
     rule(
       with("railway"),
       use("kind", "rail"),
@@ -286,7 +304,22 @@ public class Roads implements ForwardingProfile.LayerPostProcessor, ForwardingPr
       use("kindDetail", "runway"),
       use("minZoom", 9)
     )
-  )).index();
+  ));
+
+  /**
+   * The tag keys of the OSM features this layer can use, see {@link com.protomaps.basemap.feature.OsmRouter}.
+   */
+  public static final Set<String> OSM_KEYS = osmKeys();
+
+  private static Set<String> osmKeys() {
+    Set<String> keys = indexNonHighways.keys();
+    if (keys == null) {
+      return null;
+    }
+    Set<String> result = new HashSet<>(keys);
+    result.add("highway");
+    return Set.copyOf(result);
+  }
 
   @Override
   public String name() {
@@ -314,28 +347,16 @@ public class Roads implements ForwardingProfile.LayerPostProcessor, ForwardingPr
     return new ArrayList<>();
   }
 
-  private void processOsmHighways(SourceFeature sf, FeatureCollector features) {
-
-    if (!sf.hasTag("highway")) {
-      return;
-    }
-
-    if (sf.hasTag("highway", "proposed", "abandoned", "razed", "demolished", "removed", "construction", "elevator")) {
-      return;
-    }
-
-    String highway = sf.getString("highway");
-
-    Shield shield = locale.getShield(sf);
-    Integer shieldTextLength = shield.text() == null ? null : shield.text().length();
-
+  private static void setRouteNetworks(SourceFeature sf) {
     for (var routeInfo : sf.relationInfo(RouteRelationInfo.class)) {
       RouteRelationInfo relation = routeInfo.relation();
       if (relation.network != null) {
         sf.setTag("_r_network_" + relation.network, "yes");
       }
     }
+  }
 
+  private void setCountry(SourceFeature sf) {
     try {
       Optional<String> code = countryCoder.getCountryCode(sf.latLonGeometry());
       if (code.isPresent()) {
@@ -344,17 +365,34 @@ public class Roads implements ForwardingProfile.LayerPostProcessor, ForwardingPr
     } catch (GeometryException e) {
       // do nothing
     }
+  }
+
+  private void processOsmHighways(SourceFeature sf, FeatureCollector features) {
+
+    if (!sf.hasTag("highway")) {
+      return;
+    }
 
-    var matches = indexHighways.getMatches(sf);
+    if (sf.hasTag("highway", "proposed", "abandoned", "razed", "demolished", "removed", "construction", "elevator")) {
+      return;
+    }
+
+    String highway = sf.getString("highway");
+
+    Shield shield = locale.getShield(sf);
+    Integer shieldTextLength = shield.text() == null ? null : shield.text().length();
+
+    var matches = indexHighways.getMatches(sf, virtualTags);
     if (matches.isEmpty()) {
       return;
     }
 
-    String kind = getString(sf, matches, "kind", "other");
-    String kindDetail = getString(sf, matches, "kindDetail", "");
-    int minZoom = getInteger(sf, matches, "minZoom", 14);
-    int minZoomShieldText = getInteger(sf, matches, "minZoomShieldText", 14);
-    int minZoomNames = getInteger(sf, matches, "minZoomNames", 14);
+    var values = resolve(sf, matches);
+    String kind = values.getString(KIND, "other");
+    String kindDetail = values.getString(KIND_DETAIL, "");
+    int minZoom = values.getInteger(MIN_ZOOM, 14);
+    int minZoomShieldText = values.getInteger(MIN_ZOOM_SHIELD_TEXT, 14);
+    int minZoomNames = values.getInteger(MIN_ZOOM_NAMES, 14);
 
     var feat = features.line("roads")
       .setId(FeatureId.create(sf))
@@ -418,9 +456,10 @@ public class Roads implements ForwardingProfile.LayerPostProcessor, ForwardingPr
       return;
     }
 
-    int minZoom = getInteger(sf, matches, "minZoom", 11);
-    String kind = getString(sf, matches, "kind", "other");
-    String kindDetail = getString(sf, matches, "kindDetail", "");
+    var values = resolve(sf, matches);
+    int minZoom = values.getInteger(MIN_ZOOM, 11);
+    String kind = values.getString(KIND, "other");
+    String kindDetail = values.getString(KIND_DETAIL, "");
 
 
     var feature = features.line(this.name())
@@ -472,15 +511,19 @@ public class Roads implements ForwardingProfile.LayerPostProcessor, ForwardingPr
 
   }
 
+  private static final List<LinkSimplify.LinkClass> LINK_CLASSES = List.of(
+    new LinkSimplify.LinkClass("motorway", "motorway_link"),
+    new LinkSimplify.LinkClass("trunk", "trunk_link"),
+    new LinkSimplify.LinkClass("primary", "primary_link"),
+    new LinkSimplify.LinkClass("secondary", "secondary_link")
+  );
+
   @Override
   public List<VectorTile.Feature> postProcess(int zoom, List<VectorTile.Feature> items) throws GeometryException {
     // limit the application of LinkSimplify to where cloverleafs are unlikely to be at tile edges.
     // TODO: selectively apply each class depending on zoom level.
     if (zoom < 12) {
-      items = linkSimplify(items, "highway", "motorway", "motorway_link");
-      items = linkSimplify(items, "highway", "trunk", "trunk_link");
-      items = linkSimplify(items, "highway", "primary", "primary_link");
-      items = linkSimplify(items, "highway", "secondary", "secondary_link");
+      items = linkSimplify(items, "highway", LINK_CLASSES);
     }
 
     for (var item : items) {
@@ -5,11 +5,17 @@ import com.onthegomap.planetiler.ForwardingProfile;
 import com.onthegomap.planetiler.VectorTile;
 import com.onthegomap.planetiler.reader.SourceFeature;
 import java.util.List;
+import java.util.Set;
 
 public class Transit implements ForwardingProfile.LayerPostProcessor {
 
   public static final String LAYER_NAME = "transit";
 
+  /**
+   * The tag keys of the OSM features this layer can use, see {@link com.protomaps.basemap.feature.OsmRouter}.
+   */
+  public static final Set<String> OSM_KEYS = Set.of();
+
   @Override
   public String name() {
     return LAYER_NAME;
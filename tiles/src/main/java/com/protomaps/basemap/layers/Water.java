@@ -1,39 +1,56 @@
 package com.protomaps.basemap.layers;
 
 import static com.protomaps.basemap.feature.Matcher.fromTag;
-import static com.protomaps.basemap.feature.Matcher.getBoolean;
-import static com.protomaps.basemap.feature.Matcher.getInteger;
-import static com.protomaps.basemap.feature.Matcher.getString;
+import static com.protomaps.basemap.feature.Matcher.resolve;
 import static com.protomaps.basemap.feature.Matcher.rule;
+import static com.protomaps.basemap.feature.Matcher.slot;
 import static com.protomaps.basemap.feature.Matcher.use;
 import static com.protomaps.basemap.feature.Matcher.with;
 import static com.protomaps.basemap.feature.Matcher.withPoint;
 import static com.protomaps.basemap.feature.Matcher.withPolygon;
-import static com.protomaps.basemap.feature.Matcher.without;
 
 import com.onthegomap.planetiler.FeatureCollector;
 import com.onthegomap.planetiler.FeatureMerge;
 import com.onthegomap.planetiler.ForwardingProfile;
 import com.onthegomap.planetiler.VectorTile;
-import com.onthegomap.planetiler.expression.MultiExpression;
 import com.onthegomap.planetiler.geo.GeoUtils;
 import com.onthegomap.planetiler.geo.GeometryException;
 import com.onthegomap.planetiler.reader.SourceFeature;
 import com.onthegomap.planetiler.util.Parse;
 import com.protomaps.basemap.feature.FeatureId;
+import com.protomaps.basemap.feature.KeyDispatch;
+import com.protomaps.basemap.feature.Matcher;
+import com.protomaps.basemap.feature.WikidataOverrides;
 import com.protomaps.basemap.names.OsmNames;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 
 @SuppressWarnings("java:S1192") // Duplicated string literals
 public class Water implements ForwardingProfile.LayerPostProcessor {
 
+  private final WikidataOverrides wikidataOverrides;
+
+  public Water(WikidataOverrides wikidataOverrides) {
+    this.wikidataOverrides = wikidataOverrides;
+  }
+
   private static final double WORLD_AREA_FOR_70K_SQUARE_METERS =
     Math.pow(GeoUtils.metersToPixelAtEquator(0, Math.sqrt(70_000)) / 256d, 2);
 
   public static final String LAYER_NAME = "water";
 
-  private static final MultiExpression.Index<Map<String, Object>> neIndex = MultiExpression.ofOrdered(List.of(
+  /**
+   * The Natural Earth tables this layer reads, see {@link com.protomaps.basemap.feature.NeRouter}.
+   */
+  public static final Set<String> NE_TABLES = Set.of("ne_50m_ocean", "ne_50m_lakes", "ne_10m_ocean", "ne_10m_lakes");
+
+  private static final Matcher.Slot KIND = slot("kind");
+  private static final Matcher.Slot KIND_DETAIL = slot("kindDetail");
+  private static final Matcher.Slot MIN_ZOOM = slot("minZoom");
+  private static final Matcher.Slot NAME_OVERRIDE = slot("nameOverride");
+  private static final Matcher.Slot KEEP_POLYGON = slot("keepPolygon");
+
+  private static final KeyDispatch neIndex = KeyDispatch.ofOrdered("water_ne", List.of(
     rule(
       with("featurecla", "Ocean"),
       use("minZoom", fromTag("min_zoom")),
@@ -58,20 +75,10 @@ public class Water implements ForwardingProfile.LayerPostProcessor {
       with("featurecla", "Alkaline Lake"),
       use("minZoom", fromTag("min_zoom")),
       use("kind", "lake")
-    ),
-    rule(
-      without("""
-          _source_layer
-          ne_50m_ocean
-          ne_50m_lakes
-          ne_10m_ocean
-          ne_10m_lakes
-        """),
-      use("kind", null)
     )
-  )).index();
+  ));
 
-  private static final MultiExpression.Index<Map<String, Object>> osmIndex = MultiExpression.ofOrdered(List.of(
+  private static final KeyDispatch osmIndex = KeyDispatch.ofOrdered("water_osm", List.of(
     rule(
       with("natural", "reef"),
       use("kind", "reef")
@@ -280,7 +287,12 @@ public class Water implements ForwardingProfile.LayerPostProcessor {
       use("kind", "ocean"),
       use("minZoom", 0)
     )
-  )).index();
+  ));
+
+  /**
+   * The tag keys of the OSM features this layer can use, see {@link com.protomaps.basemap.feature.OsmRouter}.
+   */
+  public static final Set<String> OSM_KEYS = osmIndex.keys();
 
   @Override
   public String name() {
@@ -299,19 +311,18 @@ public class Water implements ForwardingProfile.LayerPostProcessor {
   }
 
   public void processNe(SourceFeature sf, FeatureCollector features) {
-    sf.setTag("_source_layer", sf.getSourceLayer());
-
     var matches = neIndex.getMatches(sf);
     if (matches.isEmpty()) {
       return;
     }
 
-    String kind = getString(sf, matches, "kind", null);
+    var values = resolve(sf, matches);
+    String kind = values.getString(KIND, null);
     if (kind == null) {
       return;
     }
 
-    String minZoomString = getString(sf, matches, "minZoom", null);
+    String minZoomString = values.getString(MIN_ZOOM, null);
 
     if (sf.canBePolygon() && minZoomString != null) {
       int minZoom = (int) Math.round(Double.parseDouble(minZoomString));
@@ -340,18 +351,20 @@ public class Water implements ForwardingProfile.LayerPostProcessor {
       return;
     }
 
-    String kind = getString(sf, matches, "kind", null);
+    var values = resolve(sf, matches);
+    String kind = values.getString(KIND, null);
     if (kind == null) {
       return;
     }
 
-    String nameOverride = getString(sf, matches, "nameOverride", null);
+    String nameOverride = values.getString(NAME_OVERRIDE, null);
     if (nameOverride != null) {
       sf.setTag("name", nameOverride);
     }
 
-    String kindDetail = getString(sf, matches, "kindDetail", null);
-    boolean keepPolygon = getBoolean(sf, matches, "keepPolygon", true);
+    String kindDetail = values.getString(KIND_DETAIL, null);
+    int wikidataOverride = wikidataOverrides.get(sf.getString("wikidata"));
+    boolean keepPolygon = values.getBoolean(KEEP_POLYGON, true);
 
     int extraAttrMinzoom = 14;
 
@@ -361,7 +374,7 @@ public class Water implements ForwardingProfile.LayerPostProcessor {
       double pixelTol = kind.equals("riverbank") ? Earth.PIXEL_TOLERANCE * 0.75 : Earth.PIXEL_TOLERANCE;
       double minPixelSize = kind.equals("riverbank") || kind.equals("river") ? 0.5 : 1.0;  // Smaller min size for riverbanks
       
-      features.polygon(LAYER_NAME)
+      var polygonFeature = features.polygon(LAYER_NAME)
         .setAttr("kind", kind)
         .setAttr("kind_detail", kindDetail)
         .setAttr("sort_rank", 200)
@@ -380,7 +393,7 @@ public class Water implements ForwardingProfile.LayerPostProcessor {
 
     // lines
     if (sf.canBeLine() && !sf.canBePolygon()) {
-      int minZoom = getInteger(sf, matches, "minZoom", 12);
+      int minZoom = WikidataOverrides.minZoom(wikidataOverride, values.getInteger(MIN_ZOOM, 12));
       
       // Set smaller pixel tolerance for rivers to keep more detail
       double lineTolerance = (kind.equals("river") || kind.equals("canal")) ? 0 : 0.5;
@@ -410,7 +423,7 @@ public class Water implements ForwardingProfile.LayerPostProcessor {
 
     // points
     if (sf.isPoint()) {
-      int minZoom = getInteger(sf, matches, "minZoom", 15);
+      int minZoom = WikidataOverrides.minZoom(wikidataOverride, values.getInteger(MIN_ZOOM, 15));
       var feat = features.point(LAYER_NAME)
         .setId(FeatureId.create(sf))
         .setAttr("kind", kind)
@@ -439,7 +452,7 @@ public class Water implements ForwardingProfile.LayerPostProcessor {
         }
       }
 
-      nameMinZoom = getInteger(sf, matches, "minZoom", nameMinZoom);
+      nameMinZoom = WikidataOverrides.minZoom(wikidataOverride, values.getInteger(MIN_ZOOM, nameMinZoom));
 
       var waterLabelPosition = features.pointOnSurface(LAYER_NAME)
         .setAttr("kind", kind)
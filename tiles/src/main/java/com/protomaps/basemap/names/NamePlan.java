@@ -0,0 +1,148 @@
+package com.protomaps.basemap.names;
+
+import com.onthegomap.planetiler.FeatureCollector;
+import com.onthegomap.planetiler.reader.SourceFeature;
+import com.onthegomap.planetiler.stats.Counter;
+import com.onthegomap.planetiler.stats.Stats;
+import com.protomaps.basemap.text.FontRegistry;
+import com.protomaps.basemap.text.TextEngine;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The name attributes of an OSM source feature: segmented names, their scripts, PGF encoded values and the allowed
+ * {@code name:*} translations.
+ * <p>
+ * A source feature is handed to every layer on the same thread, and several layers label it. The plan is computed once
+ * per source feature and cached for the thread, so each layer only applies it with its own min zoom. The cached plan is
+ * rebuilt if a layer replaced the {@code name} tag in between, like {@link com.protomaps.basemap.layers.Water} does.
+ */
+public final class NamePlan {
+  private static final Logger LOGGER = LoggerFactory.getLogger(NamePlan.class);
+
+  private static final ThreadLocal<NamePlan> LAST = new ThreadLocal<>();
+
+  private static final Counter.MultiThreadCounter computed = Counter.newMultiThreadCounter();
+  private static final Counter.MultiThreadCounter reused = Counter.newMultiThreadCounter();
+  private static final Counter.MultiThreadCounter computeNanos = Counter.newMultiThreadCounter();
+
+  private final SourceFeature source;
+  private final Object name;
+  private final String[] keys;
+  private final Object[] values;
+
+  private NamePlan(SourceFeature source, Object name, List<String> keys, List<Object> values) {
+    this.source = source;
+    this.name = name;
+    this.keys = keys.toArray(String[]::new);
+    this.values = values.toArray();
+  }
+
+  /**
+   * Returns the plan of {@code sf}, reusing the one computed by a previous layer when the feature is unchanged.
+   */
+  public static NamePlan forOsm(SourceFeature sf) {
+    NamePlan plan = LAST.get();
+    if (plan == null || plan.source != sf || plan.name != sf.getTag("name")) {
+      long start = System.nanoTime();
+      plan = compute(sf);
+      computeNanos.incBy(System.nanoTime() - start);
+      computed.inc();
+      LAST.set(plan);
+    } else {
+      reused.inc();
+    }
+    return plan;
+  }
+
+  /**
+   * Reports how many plans were computed or reused, and the time spent computing them, through {@code stats}.
+   */
+  public static void registerStats(Stats stats) {
+    stats.counter("osm_name_plans", "result", () -> Map.of("computed", computed, "reused", reused));
+    stats.gauge("osm_name_plan_seconds", () -> computeNanos.get() / 1e9);
+  }
+
+  public static void logSummary() {
+    LOGGER.info("OSM name plans: {} computed in {}ms, {} reused", computed.get(), computeNanos.get() / 1_000_000,
+      reused.get());
+  }
+
+  private static void addSegment(List<String> keys, List<Object> values, String segment, String suffix) {
+    keys.add("name" + suffix);
+    values.add(segment);
+
+    int script = Script.classify(segment);
+    if (script != Script.LATIN && script != Script.GENERIC) {
+      keys.add("script" + suffix);
+      values.add(Script.name(script));
+    }
+
+    String encodedValue = TextEngine.encodeRegisteredScripts(segment);
+    if (!encodedValue.equals(segment)) {
+      keys.add("pgf:name" + suffix);
+      values.add(encodedValue);
+    }
+  }
+
+  private static NamePlan compute(SourceFeature sf) {
+    FontRegistry fontRegistry = FontRegistry.getInstance();
+    List<String> keys = new ArrayList<>();
+    List<Object> values = new ArrayList<>();
+
+    for (Map.Entry<String, Object> tag : sf.tags().entrySet()) {
+      var key = tag.getKey();
+      String value = sf.getTag(key).toString();
+
+      if (key.equals("name")) {
+        List<String> segments = ScriptSegmenter.segmentByScript(value);
+        if (!segments.isEmpty()) {
+          addSegment(keys, values, segments.get(0), "");
+        }
+        if (segments.size() >= 2) {
+          addSegment(keys, values, segments.get(1), "2");
+        }
+        if (segments.size() >= 3) {
+          addSegment(keys, values, segments.get(2), "3");
+        }
+      }
+
+      if (OsmNames.isAllowed(key)) {
+        keys.add(key);
+        values.add(value);
+
+        if (fontRegistry.hasScript(Script.name(Script.classify(value)))) {
+          String encodedValue = TextEngine.encodeRegisteredScripts(value);
+          if (!encodedValue.equals(value)) {
+            keys.add("pgf:" + key);
+            values.add(encodedValue);
+          }
+        }
+      }
+    }
+
+    // Backfill name:zh to name:zh-Hant and name:zh-Hans if those are not available
+    if (sf.hasTag("name:zh")) {
+      if (!sf.hasTag("name:zh-Hant")) {
+        keys.add("name:zh-Hant");
+        values.add(sf.getTag("name:zh"));
+      }
+      if (!sf.hasTag("name:zh-Hans")) {
+        keys.add("name:zh-Hans");
+        values.add(sf.getTag("name:zh"));
+      }
+    }
+
+    return new NamePlan(sf, sf.getTag("name"), keys, values);
+  }
+
+  public FeatureCollector.Feature apply(FeatureCollector.Feature feature, int minZoom) {
+    for (int i = 0; i < keys.length; i++) {
+      feature.setAttrWithMinzoom(keys[i], values[i], minZoom);
+    }
+    return feature;
+  }
+}
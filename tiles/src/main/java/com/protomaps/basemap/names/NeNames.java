@@ -20,17 +20,21 @@ public class NeNames {
         continue;
       }
       String value = sf.getTag(key).toString();
-      var script = Script.getScript(value);
 
       if (key.startsWith("name_")) {
         key = key.replace("_", ":");
       }
 
+      if (!key.startsWith("name")) {
+        continue;
+      }
+      int script = Script.classify(value);
+
       if (key.equals("name")) {
         feature.setAttrWithMinzoom("name", value, minZoom);
 
-        if (!script.equals("Latin") && !script.equals("Generic")) {
-          feature.setAttrWithMinzoom("script", script, minZoom);
+        if (script != Script.LATIN && script != Script.GENERIC) {
+          feature.setAttrWithMinzoom("script", Script.name(script), minZoom);
         }
 
         String encodedValue = TextEngine.encodeRegisteredScripts(value);
@@ -40,7 +44,7 @@ public class NeNames {
       if (key.startsWith("name:")) {
         feature.setAttrWithMinzoom(key, value, minZoom);
 
-        if (fontRegistry.getScripts().contains(script)) {
+        if (fontRegistry.hasScript(Script.name(script))) {
           String encodedValue = TextEngine.encodeRegisteredScripts(value);
           feature.setAttrWithMinzoom("pgf:" + key, encodedValue, minZoom);
         }
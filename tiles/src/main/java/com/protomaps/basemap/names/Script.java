@@ -1,49 +1,115 @@
 package com.protomaps.basemap.names;
 
+import java.lang.Character.UnicodeScript;
 
+/**
+ * Classifies text by the Unicode script of its codepoints.
+ * <p>
+ * {@link #classify} returns an int code, either a {@link UnicodeScript} ordinal or one of {@link #GENERIC},
+ * {@link #MIXED} and {@link #MIXED_JAPANESE}, and allocates nothing. Scripts of the Basic Multilingual Plane come from
+ * a precomputed table. {@link #name} turns a code into the display string written to tiles.
+ */
 public class Script {
 
+  /** All codepoints are COMMON, INHERITED or UNKNOWN. */
+  public static final int GENERIC = -1;
+  public static final int MIXED = -2;
+  /** Mixed scripts including Hiragana or Katakana. */
+  public static final int MIXED_JAPANESE = -3;
+
+  public static final int LATIN = UnicodeScript.LATIN.ordinal();
+
+  private static final int IGNORED = 0xFF;
+  private static final int HIRAGANA = UnicodeScript.HIRAGANA.ordinal();
+  private static final int KATAKANA = UnicodeScript.KATAKANA.ordinal();
+
+  private static final byte[] BMP_SCRIPTS = new byte[Character.MIN_SUPPLEMENTARY_CODE_POINT];
+  private static final String[] NAMES;
+
+  static {
+    UnicodeScript[] scripts = UnicodeScript.values();
+    assert scripts.length < IGNORED;
+
+    NAMES = new String[scripts.length];
+    for (UnicodeScript script : scripts) {
+      String name = script.name();
+      NAMES[script.ordinal()] = name.substring(0, 1).toUpperCase() + name.substring(1).toLowerCase();
+    }
+
+    for (int cp = 0; cp < BMP_SCRIPTS.length; cp++) {
+      BMP_SCRIPTS[cp] = (byte) code(UnicodeScript.of(cp));
+    }
+  }
+
   private Script() {}
 
-  public static String getScript(String text) {
-    if (text == null || text.length() == 0) {
-      return "Generic";
+  private static int code(UnicodeScript script) {
+    if (script == UnicodeScript.COMMON || script == UnicodeScript.INHERITED || script == UnicodeScript.UNKNOWN) {
+      return IGNORED;
     }
+    return script.ordinal();
+  }
 
-    String overallScript = "";
+  private static int codepointScript(int cp) {
+    if (cp < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+      return BMP_SCRIPTS[cp] & 0xFF;
+    }
+    return code(UnicodeScript.of(cp));
+  }
 
-    for (int i = 0; i < text.length(); ++i) {
-      String script = "" + Character.UnicodeScript.of(text.charAt(i));
-      if (script.equals("COMMON")) {
-        continue;
-      }
-      if (script.equals("UNKNOWN")) {
-        continue;
-      }
-      if (script.equals("INHERITED")) {
+  private static boolean isKana(int script) {
+    return script == HIRAGANA || script == KATAKANA;
+  }
+
+  /**
+   * Returns the script code of {@code text}, ignoring COMMON, INHERITED and UNKNOWN codepoints.
+   */
+  public static int classify(CharSequence text) {
+    if (text == null) {
+      return GENERIC;
+    }
+
+    int overallScript = IGNORED;
+    boolean kana = false;
+    int length = text.length();
+    int i = 0;
+    while (i < length) {
+      int cp = Character.codePointAt(text, i);
+      i += Character.charCount(cp);
+      int script = codepointScript(cp);
+      if (script == IGNORED) {
         continue;
       }
-      if (overallScript.equals("")) {
+      kana |= isKana(script);
+      if (overallScript == IGNORED) {
         overallScript = script;
-      } else {
-        if (!script.equals(overallScript)) {
-          for (int j = 0; j < text.length(); ++j) {
-            Character.UnicodeScript unicodeScript = Character.UnicodeScript.of(text.charAt(j));
-            if (unicodeScript.equals(Character.UnicodeScript.KATAKANA) ||
-              unicodeScript.equals(Character.UnicodeScript.HIRAGANA)) {
-              return "Mixed-Japanese";
-            }
-          }
-          return "Mixed";
+      } else if (script != overallScript) {
+        // mixed, only need to know whether any kana is left in the rest of the text
+        while (!kana && i < length) {
+          cp = Character.codePointAt(text, i);
+          i += Character.charCount(cp);
+          kana = isKana(codepointScript(cp));
         }
+        return kana ? MIXED_JAPANESE : MIXED;
       }
     }
 
-    if (overallScript.equals("")) {
-      // all characters are in COMMON or UNKNOWN or INHERITED
-      return "Generic";
-    }
+    return overallScript == IGNORED ? GENERIC : overallScript;
+  }
 
-    return overallScript.substring(0, 1).toUpperCase() + overallScript.substring(1).toLowerCase();
+  /**
+   * Returns the display name of a script code, like "Latin", "Generic" or "Mixed-Japanese".
+   */
+  public static String name(int script) {
+    return switch (script) {
+      case GENERIC -> "Generic";
+      case MIXED -> "Mixed";
+      case MIXED_JAPANESE -> "Mixed-Japanese";
+      default -> NAMES[script];
+    };
+  }
+
+  public static String getScript(String text) {
+    return name(classify(text));
   }
 }
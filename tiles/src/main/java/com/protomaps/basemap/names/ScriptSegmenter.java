@@ -36,14 +36,15 @@ public class ScriptSegmenter {
 
   public static boolean hasRepeatedScript(List<String> segments) {
 
-    Set<String> scripts = new HashSet<>();
+    int[] scripts = new int[segments.size()];
 
-    for (String segment : segments) {
-      String script = Script.getScript(segment);
-      if (scripts.contains(script)) {
-        return true;
+    for (int i = 0; i < scripts.length; i++) {
+      scripts[i] = Script.classify(segments.get(i));
+      for (int j = 0; j < i; j++) {
+        if (scripts[j] == scripts[i]) {
+          return true;
+        }
       }
-      scripts.add(script);
     }
 
     return false;
@@ -1,26 +1,57 @@
 package com.protomaps.basemap.postprocess;
 
 import com.onthegomap.planetiler.VectorTile;
-import com.onthegomap.planetiler.geo.GeometryException;
+import com.onthegomap.planetiler.geo.GeometryType;
+import com.onthegomap.planetiler.stats.Counter;
+import com.onthegomap.planetiler.stats.Stats;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Area {
 
+  // polygons smaller than 30000 units of the 4096 tile extent are too small to be labeled
+  static final double NAME_MIN_AREA = 30000d / (4096 * 4096) * (256 * 256);
+
+  private static final Map<String, Counter.MultiThreadCounter> droppedFeatures = new ConcurrentHashMap<>();
+  private static final Map<String, Counter.MultiThreadCounter> droppedBytes = new ConcurrentHashMap<>();
+
   private Area() {}
 
-  public static List<VectorTile.Feature> filterArea(List<VectorTile.Feature> items, double minArea)
-    throws GeometryException {
-    List<VectorTile.Feature> result = new ArrayList(items.size());
+  private static String label(String layer, int zoom) {
+    return String.format("%s:%02d", layer, zoom);
+  }
+
+  /**
+   * Drops the polygons of a tile of {@code layer} at {@code zoom} whose area is less than {@code minArea} square tile
+   * pixels, and removes the names of polygons too small to be labeled. Points and lines are kept as they are.
+   * <p>
+   * The areas are those of the polygons themselves, not of their envelopes, read from the encoded geometries without
+   * decoding them. The dropped features and their encoded geometry bytes are counted per layer and zoom.
+   * </p>
+   */
+  public static List<VectorTile.Feature> filterArea(String layer, int zoom, List<VectorTile.Feature> items,
+    double minArea) {
+    List<VectorTile.Feature> result = new ArrayList<>(items.size());
+    var measure = new GeometryMeasure();
+    long dropped = 0;
+    long bytes = 0;
     for (var item : items) {
-      var area = item.geometry().decode().getEnvelopeInternal().getArea();
+      if (item.geometry().geomType() != GeometryType.POLYGON) {
+        result.add(item);
+        continue;
+      }
+      var area = Math.abs(measure.measure(item.geometry()).area());
 
-      if (minArea > 0 && area < minArea) {
-        // do nothing
+      if (area < minArea) {
+        dropped++;
+        bytes += measure.encodedBytes();
       } else {
-        if (minArea < 30000 / (4096 * 4096) * (256 * 256)) {
+        if (area < NAME_MIN_AREA) {
           Set<String> keys = new HashSet<>(item.tags().keySet());
           for (String key : keys) {
             if (key.equals("name") || key.startsWith("name:")) {
@@ -33,6 +64,33 @@ public class Area {
       }
     }
 
+    if (dropped > 0) {
+      String label = label(layer, zoom);
+      droppedFeatures.computeIfAbsent(label, k -> Counter.newMultiThreadCounter()).incBy(dropped);
+      droppedBytes.computeIfAbsent(label, k -> Counter.newMultiThreadCounter()).incBy(bytes);
+    }
     return result;
   }
+
+  /**
+   * Returns how many features of {@code layer} {@link #filterArea} dropped at {@code zoom}.
+   */
+  public static long droppedFeatures(String layer, int zoom) {
+    var counter = droppedFeatures.get(label(layer, zoom));
+    return counter == null ? 0 : counter.get();
+  }
+
+  /**
+   * Returns the encoded geometry bytes of the features of {@code layer} that {@link #filterArea} dropped at
+   * {@code zoom}.
+   */
+  public static long droppedBytes(String layer, int zoom) {
+    var counter = droppedBytes.get(label(layer, zoom));
+    return counter == null ? 0 : counter.get();
+  }
+
+  public static void registerStats(Stats stats) {
+    stats.counter("area_filter_dropped_features", "layer_zoom", () -> new TreeMap<>(droppedFeatures));
+    stats.counter("area_filter_dropped_bytes", "layer_zoom", () -> new TreeMap<>(droppedBytes));
+  }
 }
@@ -2,7 +2,6 @@ package com.protomaps.basemap.postprocess;
 
 import static com.onthegomap.planetiler.geo.GeoUtils.WORLD_BOUNDS;
 import static com.onthegomap.planetiler.geo.GeoUtils.latLonToWorldCoords;
-import static com.onthegomap.planetiler.render.TiledGeometry.getCoveredTiles;
 import static com.onthegomap.planetiler.render.TiledGeometry.sliceIntoTiles;
 
 import com.onthegomap.planetiler.ForwardingProfile;
@@ -11,18 +10,27 @@ import com.onthegomap.planetiler.VectorTile;
 import com.onthegomap.planetiler.geo.*;
 import com.onthegomap.planetiler.reader.FileFormatException;
 import com.onthegomap.planetiler.reader.geojson.GeoJson;
-import com.onthegomap.planetiler.render.TiledGeometry;
 import com.onthegomap.planetiler.stats.Stats;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
 import org.locationtech.jts.geom.*;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
 import org.locationtech.jts.geom.util.AffineTransformation;
 import org.locationtech.jts.operation.overlayng.OverlayNG;
 import org.locationtech.jts.operation.overlayng.OverlayNGRobust;
 
 public class Clip implements ForwardingProfile.TilePostProcessor {
-  private final Map<Integer, Map<TileCoord, List<List<CoordinateSequence>>>> boundaryTilesByZoom;
-  private final Map<Integer, TiledGeometry.CoveredTiles> coveredTilesByZoom;
+  private final int minzoom;
+  private final int maxzoom;
+  private final Geometry clipGeometry;
+  private final PreparedGeometry preparedClipGeometry;
+  // computed when the first tile of a zoom is post-processed, or by computeZooms
+  private final Map<Integer, ClipCoverage> coverageByZoom = new ConcurrentHashMap<>();
+  // only kept for the zooms being written, see evictBoundaries
+  private final Map<Integer, ZoomBoundary> boundaryByZoom = new ConcurrentHashMap<>();
   private final Stats stats;
 
   static final double DEFAULT_BUFFER = 4.0 / 256.0;
@@ -31,26 +39,64 @@ public class Clip implements ForwardingProfile.TilePostProcessor {
   // the geometry must be in world coordinates ( world from 0 to 1 )
   public Clip(Stats stats, int minzoom, int maxzoom, boolean doBuffer, Geometry input) {
     this.stats = stats;
+    this.minzoom = minzoom;
+    this.maxzoom = maxzoom;
     double bufferAmount = 0;
     if (doBuffer) {
       var envelope = input.getEnvelope().getEnvelopeInternal();
       bufferAmount = Math.max(envelope.getWidth(), envelope.getHeight()) * DEFAULT_BUFFER;
     }
-    var clipGeometry = input.buffer(bufferAmount);
-    boundaryTilesByZoom = new HashMap<>();
-    coveredTilesByZoom = new HashMap<>();
-    try {
-      for (var i = minzoom; i <= maxzoom; i++) {
-        var extents = TileExtents.computeFromWorldBounds(i, WORLD_BOUNDS);
-        double scale = 1 << i;
-        Geometry scaled = AffineTransformation.scaleInstance(scale, scale).transform(clipGeometry);
-        this.boundaryTilesByZoom.put(i,
-          sliceIntoTiles(scaled, 0, DEFAULT_BUFFER, i, extents.getForZoom(i)).getTileData());
-        this.coveredTilesByZoom.put(i, getCoveredTiles(scaled, i, extents.getForZoom(i)));
-      }
-    } catch (GeometryException e) {
-      throw new Planetiler.PlanetilerException("Error clipping", e);
+    this.clipGeometry = input.buffer(bufferAmount);
+    this.preparedClipGeometry = PreparedGeometryFactory.prepare(clipGeometry);
+  }
+
+  /**
+   * Computes the covered and boundary tiles of all zooms up front instead of when their first tile is post-processed,
+   * on one thread per zoom if {@code parallel}.
+   */
+  public Clip computeZooms(boolean parallel) {
+    var zooms = IntStream.rangeClosed(minzoom, maxzoom);
+    if (parallel) {
+      zooms = zooms.parallel();
     }
+    zooms.forEach(z -> {
+      coverage(z);
+      boundary(z);
+    });
+    return this;
+  }
+
+  ClipCoverage coverage(int z) {
+    return coverageByZoom.computeIfAbsent(z, k -> ClipCoverage.compute(preparedClipGeometry, k));
+  }
+
+  private ZoomBoundary boundary(int z) {
+    return boundaryByZoom.computeIfAbsent(z, k -> {
+      var extents = TileExtents.computeFromWorldBounds(k, WORLD_BOUNDS);
+      double scale = 1 << k;
+      Geometry scaled = AffineTransformation.scaleInstance(scale, scale).transform(clipGeometry);
+      try {
+        return new ZoomBoundary(sliceIntoTiles(scaled, 0, DEFAULT_BUFFER, k, extents.getForZoom(k)).getTileData(),
+          new ConcurrentHashMap<>());
+      } catch (GeometryException e) {
+        throw new Planetiler.PlanetilerException("Error clipping", e);
+      }
+    });
+  }
+
+  /**
+   * Drops the boundaries of the zooms more than one below {@code z}: tiles are written in zoom order, so those zooms
+   * are done apart from a few stragglers, which recompute them if needed.
+   */
+  private void evictBoundaries(int z) {
+    boundaryByZoom.keySet().removeIf(k -> k < z - 1);
+  }
+
+  /**
+   * Returns the zooms whose boundary tiles are currently held in memory.
+   */
+  Set<Integer> boundaryZooms() {
+    return new TreeSet<>(boundaryByZoom.keySet());
   }
 
   public static Clip fromGeoJSONFile(Stats stats, int minzoom, int maxzoom, boolean doBuffer, Path path) {
@@ -92,6 +138,54 @@ public class Clip implements ForwardingProfile.TilePostProcessor {
     }
   }
 
+  /**
+   * The clipping polygon within a boundary tile, in tile pixels, with the envelope and prepared geometry used to find
+   * the features that lie entirely inside or outside of it.
+   */
+  private record ClipShape(Geometry polygon, PreparedGeometry prepared, Envelope envelope, boolean rectangle) {
+
+    static ClipShape of(Geometry polygon) {
+      return new ClipShape(polygon, PreparedGeometryFactory.prepare(polygon), polygon.getEnvelopeInternal(),
+        polygon.isRectangle());
+    }
+
+    boolean covers(Envelope featureEnvelope) {
+      if (!envelope.covers(featureEnvelope)) {
+        return false;
+      }
+      return rectangle || prepared.covers(GeoUtils.JTS_FACTORY.toGeometry(featureEnvelope));
+    }
+
+    boolean disjoint(Envelope featureEnvelope) {
+      if (!envelope.intersects(featureEnvelope)) {
+        return true;
+      }
+      return !rectangle && !prepared.intersects(GeoUtils.JTS_FACTORY.toGeometry(featureEnvelope));
+    }
+  }
+
+  /**
+   * The pieces of the buffered clipping geometry within each boundary tile of one zoom, and the clipping polygons of
+   * the boundary tiles that were post-processed so far.
+   */
+  private record ZoomBoundary(Map<TileCoord, List<List<CoordinateSequence>>> tiles,
+    Map<TileCoord, ClipShape> shapes) {
+
+    ClipShape shape(TileCoord tile) throws GeometryException {
+      ClipShape shape = shapes.get(tile);
+      if (shape == null) {
+        // threads racing for the same tile build equal shapes, of which the first one is kept
+        var polygon = GeoUtils.fixPolygon(reassemblePolygons(tiles.get(tile)));
+        shape = ClipShape.of(polygon);
+        ClipShape existing = shapes.putIfAbsent(tile, shape);
+        if (existing != null) {
+          shape = existing;
+        }
+      }
+      return shape;
+    }
+  }
+
   private boolean nonDegenerateGeometry(Geometry geom) {
     return !geom.isEmpty() && geom.getNumGeometries() > 0;
   }
@@ -120,30 +214,40 @@ public class Clip implements ForwardingProfile.TilePostProcessor {
   public Map<String, List<VectorTile.Feature>> postProcessTile(TileCoord tile,
     Map<String, List<VectorTile.Feature>> layers) throws GeometryException {
 
-    var inCovering =
-      this.coveredTilesByZoom.containsKey(tile.z()) && this.coveredTilesByZoom.get(tile.z()).test(tile.x(), tile.y());
-
-    if (!inCovering)
+    if (tile.z() < minzoom || tile.z() > maxzoom)
       return Map.of();
 
-    var inBoundary =
-      this.boundaryTilesByZoom.containsKey(tile.z()) && this.boundaryTilesByZoom.get(tile.z()).containsKey(tile);
+    var coverage = coverage(tile.z());
+    if (!coverage.test(tile.x(), tile.y()))
+      return Map.of();
 
-    if (!inBoundary)
+    evictBoundaries(tile.z());
+    var boundary = boundary(tile.z());
+    if (!boundary.tiles().containsKey(tile))
       return layers;
 
-    List<List<CoordinateSequence>> coords = boundaryTilesByZoom.get(tile.z()).get(tile);
-    var clippingPoly = reassemblePolygons(coords);
-    clippingPoly = GeoUtils.fixPolygon(clippingPoly);
-    clippingPoly.reverse();
+    var clipShape = boundary.shape(tile);
+    var measure = new GeometryMeasure();
     Map<String, List<VectorTile.Feature>> output = new HashMap<>();
 
     for (Map.Entry<String, List<VectorTile.Feature>> layer : layers.entrySet()) {
       List<VectorTile.Feature> clippedFeatures = new ArrayList<>();
       for (var feature : layer.getValue()) {
+        // most features of a boundary tile lie entirely on one side of the boundary and need no overlay
+        measure.measure(feature.geometry());
+        if (measure.isEmpty()) {
+          continue;
+        }
+        var envelope = new Envelope(measure.minX(), measure.maxX(), measure.minY(), measure.maxY());
+        if (clipShape.covers(envelope)) {
+          clippedFeatures.add(feature);
+          continue;
+        } else if (clipShape.disjoint(envelope)) {
+          continue;
+        }
         try {
           var clippedGeom =
-            OverlayNGRobust.overlay(feature.geometry().decode(), clippingPoly, OverlayNG.INTERSECTION);
+            OverlayNGRobust.overlay(TileGeometries.decode(feature), clipShape.polygon(), OverlayNG.INTERSECTION);
           if (nonDegenerateGeometry(clippedGeom)) {
             addToFeatures(clippedFeatures, feature, fixGeometry(clippedGeom));
           }
@@ -0,0 +1,110 @@
+package com.protomaps.basemap.postprocess;
+
+import com.carrotsearch.hppc.LongArrayList;
+import java.util.Arrays;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+
+/**
+ * The tiles of one zoom that a clipping geometry in world coordinates covers at least partially.
+ *
+ * <p>
+ * Instead of every covered tile, it stores the cells of this or any lower zoom that the geometry covers entirely, and
+ * the tiles of this zoom that its boundary passes through, so that its size grows with the length of the boundary
+ * rather than with the covered area. Both are sorted arrays of packed cell keys.
+ * </p>
+ */
+final class ClipCoverage {
+
+  private final int zoom;
+  // cells covered entirely, of any zoom up to this one
+  private final long[] full;
+  // tiles of this zoom covered partially
+  private final long[] partial;
+
+  private ClipCoverage(int zoom, long[] full, long[] partial) {
+    this.zoom = zoom;
+    this.full = full;
+    this.partial = partial;
+  }
+
+  private static long key(int z, int x, int y) {
+    return ((long) z << 58) | ((long) x << 29) | y;
+  }
+
+  /**
+   * Finds the tiles of {@code zoom} that {@code clip} covers, descending from the whole world into the cells its
+   * boundary passes through.
+   */
+  static ClipCoverage compute(PreparedGeometry clip, int zoom) {
+    LongArrayList full = new LongArrayList();
+    LongArrayList partial = new LongArrayList();
+    visit(clip, zoom, 0, 0, 0, full, partial);
+    long[] fullKeys = full.toArray();
+    long[] partialKeys = partial.toArray();
+    Arrays.sort(fullKeys);
+    Arrays.sort(partialKeys);
+    return new ClipCoverage(zoom, fullKeys, partialKeys);
+  }
+
+  private static void visit(PreparedGeometry clip, int zoom, int z, int x, int y, LongArrayList full,
+    LongArrayList partial) {
+    double size = 1d / (1 << z);
+    Envelope envelope = new Envelope(x * size, (x + 1) * size, y * size, (y + 1) * size);
+    if (!envelope.intersects(clip.getGeometry().getEnvelopeInternal())) {
+      return;
+    }
+    Geometry cell = clip.getGeometry().getFactory().toGeometry(envelope);
+    if (clip.covers(cell)) {
+      full.add(key(z, x, y));
+      return;
+    }
+    // shrink the cell a little, so that cells the geometry only touches at their edges do not count
+    Envelope inset = new Envelope(envelope);
+    inset.expandBy(-size * 1e-9);
+    if (!clip.intersects(clip.getGeometry().getFactory().toGeometry(inset))) {
+      return;
+    }
+    if (z == zoom) {
+      partial.add(key(z, x, y));
+    } else {
+      for (int dx = 0; dx <= 1; dx++) {
+        for (int dy = 0; dy <= 1; dy++) {
+          visit(clip, zoom, z + 1, x * 2 + dx, y * 2 + dy, full, partial);
+        }
+      }
+    }
+  }
+
+  int zoom() {
+    return zoom;
+  }
+
+  /**
+   * Returns whether the clipping geometry covers the tile {@code x, y} of this zoom entirely.
+   */
+  boolean covers(int x, int y) {
+    for (int z = 0; z <= zoom; z++) {
+      int shift = zoom - z;
+      if (Arrays.binarySearch(full, key(z, x >> shift, y >> shift)) >= 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns whether the clipping geometry covers the tile {@code x, y} of this zoom at least partially.
+   */
+  boolean test(int x, int y) {
+    return Arrays.binarySearch(partial, key(zoom, x, y)) >= 0 || covers(x, y);
+  }
+
+  /**
+   * Returns the number of cells stored, which grows with the length of the boundary.
+   */
+  int size() {
+    return full.length + partial.length;
+  }
+}
@@ -0,0 +1,152 @@
+package com.protomaps.basemap.postprocess;
+
+import com.onthegomap.planetiler.VectorTile;
+import com.onthegomap.planetiler.geo.GeometryType;
+
+/**
+ * Measures an encoded vector tile geometry by reading its command stream, without decoding it into JTS.
+ *
+ * <p>
+ * One instance can measure any number of geometries one after the other, each {@link #measure} overwrites the results
+ * of the previous one and allocates nothing. Results are in the 256 pixel tile units of decoded geometries.
+ * </p>
+ */
+public final class GeometryMeasure {
+
+  private static final int MOVE_TO = 1;
+  private static final int LINE_TO = 2;
+  private static final int CLOSE_PATH = 7;
+  private static final double UNITS_PER_PIXEL = 4096d / 256d;
+
+  private double minX;
+  private double minY;
+  private double maxX;
+  private double maxY;
+  private double area;
+  private int vertexCount;
+  private int encodedBytes;
+
+  /**
+   * Reads the commands of {@code geometry}, the results are available until the next call.
+   */
+  public GeometryMeasure measure(VectorTile.VectorGeometry geometry) {
+    int[] commands = geometry.commands();
+    boolean polygon = geometry.geomType() == GeometryType.POLYGON;
+
+    // in the integer units of the command stream
+    int x = 0;
+    int y = 0;
+    int ringStartX = 0;
+    int ringStartY = 0;
+    int minIntX = Integer.MAX_VALUE;
+    int minIntY = Integer.MAX_VALUE;
+    int maxIntX = Integer.MIN_VALUE;
+    int maxIntY = Integer.MIN_VALUE;
+    // twice the signed area of the rings
+    long doubleArea = 0;
+    int vertices = 0;
+
+    int i = 0;
+    while (i < commands.length) {
+      int command = commands[i++];
+      int id = command & 0x7;
+      int count = command >>> 3;
+      if (id == CLOSE_PATH) {
+        if (polygon) {
+          doubleArea += (long) x * ringStartY - (long) ringStartX * y;
+        }
+        continue;
+      }
+      for (int j = 0; j < count && i + 1 < commands.length; j++) {
+        int nextX = x + zigZagDecode(commands[i++]);
+        int nextY = y + zigZagDecode(commands[i++]);
+        if (id == MOVE_TO) {
+          ringStartX = nextX;
+          ringStartY = nextY;
+        } else if (id == LINE_TO && polygon) {
+          doubleArea += (long) x * nextY - (long) nextX * y;
+        }
+        x = nextX;
+        y = nextY;
+        minIntX = Math.min(minIntX, x);
+        minIntY = Math.min(minIntY, y);
+        maxIntX = Math.max(maxIntX, x);
+        maxIntY = Math.max(maxIntY, y);
+        vertices++;
+      }
+    }
+
+    int bytes = 0;
+    for (int command : commands) {
+      bytes += varIntSize(command);
+    }
+
+    double scale = UNITS_PER_PIXEL * (1 << geometry.scale());
+    this.vertexCount = vertices;
+    this.encodedBytes = bytes;
+    this.area = doubleArea / 2d / scale / scale;
+    if (vertices == 0) {
+      this.minX = this.minY = this.maxX = this.maxY = 0;
+    } else {
+      this.minX = minIntX / scale;
+      this.minY = minIntY / scale;
+      this.maxX = maxIntX / scale;
+      this.maxY = maxIntY / scale;
+    }
+    return this;
+  }
+
+  private static int zigZagDecode(int n) {
+    return (n >>> 1) ^ -(n & 1);
+  }
+
+  private static int varIntSize(int value) {
+    return (32 - Integer.numberOfLeadingZeros(value | 1) + 6) / 7;
+  }
+
+  public double minX() {
+    return minX;
+  }
+
+  public double minY() {
+    return minY;
+  }
+
+  public double maxX() {
+    return maxX;
+  }
+
+  public double maxY() {
+    return maxY;
+  }
+
+  /**
+   * Returns the area of the bounding box, 0 for an empty geometry.
+   */
+  public double envelopeArea() {
+    return (maxX - minX) * (maxY - minY);
+  }
+
+  /**
+   * Returns the sum of the signed ring areas of a polygon: with y pointing down like in the vector tile spec, exterior
+   * rings count positive and holes negative. 0 for points and lines.
+   */
+  public double area() {
+    return area;
+  }
+
+  public int vertexCount() {
+    return vertexCount;
+  }
+
+  /**
+   * Returns the size of the commands as protobuf varints, which is what the geometry adds to an encoded tile.
+   */
+  public int encodedBytes() {
+    return encodedBytes;
+  }
+
+  public boolean isEmpty() {
+    return vertexCount == 0;
+  }
+}
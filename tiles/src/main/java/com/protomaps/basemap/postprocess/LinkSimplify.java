@@ -1,16 +1,39 @@
 package com.protomaps.basemap.postprocess;
 
+import com.carrotsearch.hppc.LongIntHashMap;
 import com.onthegomap.planetiler.VectorTile;
 import com.onthegomap.planetiler.geo.GeometryException;
 import com.onthegomap.planetiler.geo.GeometryType;
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import org.locationtech.jts.geom.Coordinate;
 
 
 public class LinkSimplify {
 
+  // decoded geometries are in 256 pixel tile units, encoded on a 4096 extent
+  private static final double SCALE = 4096d / 256d;
+  private static final int COORDINATE_BITS = 28;
+  private static final long COORDINATE_MASK = (1L << COORDINATE_BITS) - 1;
+  private static final int MAX_CLASSES = 1 << (63 - 2 * COORDINATE_BITS);
+
+  // degree keys have the sign bit clear, so these never collide with one
+  private static final long NOT_A_LINK = -1;
+  private static final long EMPTY_LINK = -2;
+
   private LinkSimplify() {}
 
+  /**
+   * Packs the class and a coordinate into a long: 7 bits for the class, and 28 bits for each of x and y in units of
+   * the vector tile extent, which are exact since decoded tile geometries lie on that grid.
+   */
+  static long degreeKey(int classIndex, Coordinate coordinate) {
+    long x = Math.round(coordinate.x * SCALE) & COORDINATE_MASK;
+    long y = Math.round(coordinate.y * SCALE) & COORDINATE_MASK;
+    return ((long) classIndex << (2 * COORDINATE_BITS)) | (x << COORDINATE_BITS) | y;
+  }
+
   /**
    * Post-processing to remove "hairballs" from road networks.
    * <p>
@@ -27,56 +50,66 @@ public class LinkSimplify {
    */
   public static List<VectorTile.Feature> linkSimplify(List<VectorTile.Feature> items, String key, String mainval,
     String linkval) throws GeometryException {
+    return linkSimplify(items, key, List.of(new LinkClass(mainval, linkval)));
+  }
 
-    Map<Coordinate, Integer> degrees = new HashMap<>();
+  /**
+   * A class of main ways and the links between them, like {@code motorway} and {@code motorway_link}.
+   */
+  public record LinkClass(String mainval, String linkval) {}
 
-    for (VectorTile.Feature item : items) {
-      if (item.geometry().geomType() == GeometryType.LINE) {
-        if (item.tags().containsKey(key) && item.tags().get(key).equals(linkval)) {
-          Coordinate[] coordinates = item.geometry().decode().getCoordinates();
-          if (coordinates.length == 0)
-            continue;
-          Coordinate start = coordinates[0];
-          Coordinate end = coordinates[coordinates.length - 1];
-          if (degrees.containsKey(start)) {
-            degrees.put(start, degrees.get(start) + 1);
-          } else {
-            degrees.put(start, 1);
-          }
-          if (degrees.containsKey(end)) {
-            degrees.put(end, degrees.get(end) + 1);
-          } else {
-            degrees.put(end, 1);
-          }
+  /**
+   * Applies {@link #linkSimplify(List, String, String, String)} for several classes at once, decoding every line
+   * geometry only once.
+   * <p>
+   * Each class counts the degrees of its own coordinates, so this keeps the same features as simplifying one class
+   * after the other.
+   * </p>
+   */
+  public static List<VectorTile.Feature> linkSimplify(List<VectorTile.Feature> items, String key,
+    List<LinkClass> classes) throws GeometryException {
+    if (classes.size() > MAX_CLASSES) {
+      throw new IllegalArgumentException("At most " + MAX_CLASSES + " link classes, got " + classes.size());
+    }
 
-        } else if (item.tags().containsKey(key) && item.tags().get(key).equals(mainval)) {
-          Coordinate[] coordinates = item.geometry().decode().getCoordinates();
-          for (Coordinate c : coordinates) {
-            if (degrees.containsKey(c)) {
-              degrees.put(c, degrees.get(c) + 1);
-            } else {
-              degrees.put(c, 1);
-            }
+    LongIntHashMap degrees = new LongIntHashMap();
+    // the degree keys of the start and end of each link, or NOT_A_LINK
+    long[] linkStarts = new long[items.size()];
+    long[] linkEnds = new long[items.size()];
+    Arrays.fill(linkStarts, NOT_A_LINK);
+
+    for (int i = 0; i < items.size(); i++) {
+      VectorTile.Feature item = items.get(i);
+      if (item.geometry().geomType() != GeometryType.LINE || !(item.tags().get(key) instanceof String value)) {
+        continue;
+      }
+      for (int c = 0; c < classes.size(); c++) {
+        LinkClass linkClass = classes.get(c);
+        if (value.equals(linkClass.linkval())) {
+          Coordinate[] coordinates = TileGeometries.decode(item).getCoordinates();
+          if (coordinates.length == 0) {
+            linkStarts[i] = EMPTY_LINK;
+            break;
+          }
+          linkStarts[i] = degreeKey(c, coordinates[0]);
+          linkEnds[i] = degreeKey(c, coordinates[coordinates.length - 1]);
+          degrees.addTo(linkStarts[i], 1);
+          degrees.addTo(linkEnds[i], 1);
+          break;
+        } else if (value.equals(linkClass.mainval())) {
+          for (Coordinate coordinate : TileGeometries.decode(item).getCoordinates()) {
+            degrees.addTo(degreeKey(c, coordinate), 1);
           }
+          break;
         }
       }
     }
 
-    List<VectorTile.Feature> output = new ArrayList<>();
-
-    for (VectorTile.Feature item : items) {
-      if (item.geometry().geomType() == GeometryType.LINE && item.tags().containsKey(key) &&
-        item.tags().get(key).equals(linkval)) {
-        Coordinate[] coordinates = item.geometry().decode().getCoordinates();
-        if (coordinates.length == 0)
-          continue;
-        Coordinate start = coordinates[0];
-        Coordinate end = coordinates[coordinates.length - 1];
-        if (degrees.get(start) >= 2 && degrees.get(end) >= 2) {
-          output.add(item);
-        }
-      } else {
-        output.add(item);
+    List<VectorTile.Feature> output = new ArrayList<>(items.size());
+    for (int i = 0; i < items.size(); i++) {
+      if (linkStarts[i] == NOT_A_LINK ||
+        (linkStarts[i] != EMPTY_LINK && degrees.get(linkStarts[i]) >= 2 && degrees.get(linkEnds[i]) >= 2)) {
+        output.add(items.get(i));
       }
     }
     return output;
@@ -0,0 +1,47 @@
+package com.protomaps.basemap.postprocess;
+
+import com.onthegomap.planetiler.VectorTile;
+import com.onthegomap.planetiler.geo.GeometryException;
+import com.onthegomap.planetiler.stats.Counter;
+import com.onthegomap.planetiler.stats.Stats;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import org.locationtech.jts.geom.Geometry;
+
+/**
+ * Decodes the features of tiles that are being post-processed, counting the decodes per layer.
+ *
+ * <p>
+ * Decoded geometries are not shared between post-processors: Planetiler runs the tile post-processors, like
+ * {@link Clip}, before the layer post-processors of the same tile, and features that a post-processor changes get new
+ * geometries, so no later post-processor could reuse them. The counts show which layers still pay for decoding, and
+ * are reported through {@link Stats} once {@link #registerStats} was called.
+ * </p>
+ */
+public final class TileGeometries {
+
+  private static final Map<String, Counter.MultiThreadCounter> decodeCounters = new ConcurrentHashMap<>();
+
+  private TileGeometries() {}
+
+  /**
+   * Returns the decoded geometry of {@code feature}.
+   */
+  public static Geometry decode(VectorTile.Feature feature) throws GeometryException {
+    decodeCounters.computeIfAbsent(feature.layer(), k -> Counter.newMultiThreadCounter()).inc();
+    return feature.geometry().decode();
+  }
+
+  /**
+   * Returns how often geometries of {@code layer} were decoded.
+   */
+  public static long decodes(String layer) {
+    var counter = decodeCounters.get(layer);
+    return counter == null ? 0 : counter.get();
+  }
+
+  public static void registerStats(Stats stats) {
+    stats.counter("postprocess_geometry_decodes", "layer", () -> new TreeMap<>(decodeCounters));
+  }
+}
@@ -0,0 +1,126 @@
+package com.protomaps.basemap.text;
+
+import com.onthegomap.planetiler.stats.Counter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * A size-bounded memo cache in front of an expensive text encoder such as {@link TextEngine#encode}.
+ * <p>
+ * Entries are spread over independently locked shards, each evicting its least recently used entry once full, so worker
+ * threads encoding different names rarely contend. The encoder runs outside of the shard lock. Hit and miss counts and
+ * the time spent in the encoder are kept to help size the cache, see {@link TextMetrics}.
+ */
+public final class EncodingCache {
+
+  private static final int SHARD_COUNT = 64;
+
+  @SuppressWarnings("serial") // never serialized
+  private static final class Shard extends LinkedHashMap<String, String> {
+    private final int capacity;
+
+    Shard(int capacity) {
+      super(16, 0.75f, true);
+      this.capacity = capacity;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+      return size() > capacity;
+    }
+  }
+
+  private final UnaryOperator<String> encoder;
+  private final Shard[] shards;
+  private final Counter.MultiThreadCounter hits = Counter.newMultiThreadCounter();
+  private final Counter.MultiThreadCounter misses = Counter.newMultiThreadCounter();
+  private final Counter.MultiThreadCounter encoderNanos = Counter.newMultiThreadCounter();
+
+  /**
+   * Creates a cache holding at most {@code maxSize} entries in total, split as evenly as possible over the shards.
+   *
+   * @param maxSize maximum number of cached entries, 0 disables caching.
+   * @param encoder the function computing the value for a text that is not cached yet.
+   */
+  public EncodingCache(int maxSize, UnaryOperator<String> encoder) {
+    this.encoder = encoder;
+    if (maxSize <= 0) {
+      this.shards = new Shard[0];
+    } else {
+      // the capacities add up to maxSize, below SHARD_COUNT some shards cache nothing
+      this.shards = new Shard[SHARD_COUNT];
+      for (int i = 0; i < SHARD_COUNT; i++) {
+        shards[i] = new Shard(maxSize / SHARD_COUNT + (i < maxSize % SHARD_COUNT ? 1 : 0));
+      }
+    }
+  }
+
+  public String get(String text) {
+    if (shards.length == 0) {
+      misses.inc();
+      return encode(text);
+    }
+
+    int hash = text.hashCode();
+    Shard shard = shards[(hash ^ (hash >>> 16)) & (SHARD_COUNT - 1)];
+
+    String result;
+    synchronized (shard) {
+      result = shard.get(text);
+    }
+    if (result != null) {
+      hits.inc();
+      return result;
+    }
+
+    misses.inc();
+    result = encode(text);
+    if (shard.capacity > 0) {
+      synchronized (shard) {
+        shard.put(text, result);
+      }
+    }
+    return result;
+  }
+
+  private String encode(String text) {
+    long start = System.nanoTime();
+    String result = encoder.apply(text);
+    encoderNanos.incBy(System.nanoTime() - start);
+    return result;
+  }
+
+  public long hits() {
+    return hits.get();
+  }
+
+  public long misses() {
+    return misses.get();
+  }
+
+  Counter.Readable hitCounter() {
+    return hits;
+  }
+
+  Counter.Readable missCounter() {
+    return misses;
+  }
+
+  /**
+   * Returns the time spent in the encoder on cache misses.
+   */
+  Counter.Readable encoderNanos() {
+    return encoderNanos;
+  }
+
+  public int size() {
+    int size = 0;
+    for (Shard shard : shards) {
+      synchronized (shard) {
+        size += shard.size();
+      }
+    }
+    return size;
+  }
+}
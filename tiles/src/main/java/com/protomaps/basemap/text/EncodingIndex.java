@@ -0,0 +1,228 @@
+package com.protomaps.basemap.text;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Binary form of the PGF encoding CSVs in {@code pgf-encoding.zip}.
+ * <p>
+ * Each encoding is stored as its packed {@link GlyphEncoding} keys and codepoints, sorted by key, behind a header
+ * holding the CRC and size of the CSV entry it was built from. {@link FontRegistry} reads the file with one buffered
+ * read instead of parsing the CSV when the header still matches the archive, and writes it otherwise. Run
+ * {@link #main} to build the index for every encoding of an archive ahead of time.
+ **/
+public final class EncodingIndex {
+
+  private static final int MAGIC = 0x50474649; // "PGFI"
+  private static final int FORMAT_VERSION = 1;
+  private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 4;
+  private static final int ROW_BYTES = 8 + 4;
+
+  private EncodingIndex() {}
+
+  record Table(long[] keys, int[] codepoints) {
+    GlyphEncoding toEncoding() {
+      GlyphEncoding.Builder builder = new GlyphEncoding.Builder(keys.length);
+      for (int i = 0; i < keys.length; i++) {
+        builder.putKey(keys[i], codepoints[i]);
+      }
+      return builder.build();
+    }
+  }
+
+  /**
+   * Returns the index file name for a CSV entry, like {@code NotoSansDevanagari-Regular-v1.bin}.
+   */
+  static String fileName(ZipEntry csvEntry) {
+    String name = csvEntry.getName();
+    name = name.substring(name.lastIndexOf('/') + 1);
+    return name.substring(0, name.length() - ".csv".length()) + ".bin";
+  }
+
+  private static int parseInt(String line, int start, int end) {
+    while (start < end && line.charAt(start) == ' ') {
+      start++;
+    }
+    while (end > start && line.charAt(end - 1) == ' ') {
+      end--;
+    }
+    return Integer.parseInt(line, start, end, 10);
+  }
+
+  /**
+   * Parses an encoding CSV with the columns {@code index,x_offset,y_offset,x_advance,y_advance,codepoint}.
+   */
+  static Table parseCsv(InputStream inputStream) throws IOException {
+    long[] keys = new long[1024];
+    int[] codepoints = new int[1024];
+    int count = 0;
+    int[] fields = new int[6];
+
+    BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    reader.readLine(); // skip header
+    String line;
+    while ((line = reader.readLine()) != null) {
+      if (line.isBlank()) {
+        continue;
+      }
+      int start = 0;
+      for (int f = 0; f < fields.length; f++) {
+        int end = f == fields.length - 1 ? line.length() : line.indexOf(',', start);
+        if (end < 0) {
+          throw new IOException("Expected 6 columns in encoding row: " + line);
+        }
+        fields[f] = parseInt(line, start, end);
+        start = end + 1;
+      }
+      if (!GlyphEncoding.isValid(fields[0], fields[1], fields[2], fields[3], fields[4])) {
+        throw new IOException("Glyph out of range for the packed encoding key: " + line);
+      }
+
+      if (count == keys.length) {
+        keys = Arrays.copyOf(keys, count * 2);
+        codepoints = Arrays.copyOf(codepoints, count * 2);
+      }
+      keys[count] = GlyphEncoding.key(fields[0], fields[1], fields[2], fields[3], fields[4]);
+      codepoints[count] = fields[5];
+      count++;
+    }
+
+    return sorted(Arrays.copyOf(keys, count), Arrays.copyOf(codepoints, count));
+  }
+
+  /**
+   * Sorts the rows by key, keeping rows with equal keys in CSV order.
+   */
+  private static Table sorted(long[] keys, int[] codepoints) {
+    boolean ordered = true;
+    for (int i = 1; i < keys.length && ordered; i++) {
+      ordered = keys[i - 1] <= keys[i];
+    }
+    if (!ordered) {
+      mergeSort(keys, codepoints, new long[keys.length], new int[keys.length], 0, keys.length);
+    }
+    return new Table(keys, codepoints);
+  }
+
+  private static void mergeSort(long[] keys, int[] codepoints, long[] keysScratch, int[] codepointsScratch, int from,
+    int to) {
+    if (to - from < 2) {
+      return;
+    }
+    int mid = (from + to) >>> 1;
+    mergeSort(keys, codepoints, keysScratch, codepointsScratch, from, mid);
+    mergeSort(keys, codepoints, keysScratch, codepointsScratch, mid, to);
+    if (keys[mid - 1] <= keys[mid]) {
+      return;
+    }
+    System.arraycopy(keys, from, keysScratch, from, to - from);
+    System.arraycopy(codepoints, from, codepointsScratch, from, to - from);
+    int left = from;
+    int right = mid;
+    for (int i = from; i < to; i++) {
+      if (right >= to || (left < mid && keysScratch[left] <= keysScratch[right])) {
+        keys[i] = keysScratch[left];
+        codepoints[i] = codepointsScratch[left++];
+      } else {
+        keys[i] = keysScratch[right];
+        codepoints[i] = codepointsScratch[right++];
+      }
+    }
+  }
+
+  /**
+   * Writes {@code table} to {@code path}, replacing it atomically so concurrent readers never see a partial file.
+   */
+  static void write(Path path, ZipEntry csvEntry, Table table) throws IOException {
+    Files.createDirectories(path.getParent());
+    Path tmp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+    try (OutputStream fileStream = Files.newOutputStream(tmp);
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileStream))) {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      out.writeLong(csvEntry.getCrc());
+      out.writeLong(csvEntry.getSize());
+      out.writeInt(table.keys().length);
+      for (int i = 0; i < table.keys().length; i++) {
+        out.writeLong(table.keys()[i]);
+        out.writeInt(table.codepoints()[i]);
+      }
+    }
+    Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Reads the index at {@code path}, returning null if it is missing or was built from a different CSV entry.
+   */
+  static Table read(Path path, ZipEntry csvEntry) throws IOException {
+    if (!Files.isRegularFile(path)) {
+      return null;
+    }
+    long fileSize = Files.size(path);
+    if (fileSize < HEADER_BYTES) {
+      return null;
+    }
+    try (InputStream fileStream = Files.newInputStream(path);
+      DataInputStream in = new DataInputStream(new BufferedInputStream(fileStream, 1 << 16))) {
+      if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION ||
+        in.readLong() != csvEntry.getCrc() || in.readLong() != csvEntry.getSize()) {
+        return null;
+      }
+      int count = in.readInt();
+      if (count < 0 || fileSize != HEADER_BYTES + (long) count * ROW_BYTES) {
+        return null;
+      }
+      long[] keys = new long[count];
+      int[] codepoints = new int[count];
+      for (int i = 0; i < count; i++) {
+        keys[i] = in.readLong();
+        codepoints[i] = in.readInt();
+      }
+      return new Table(keys, codepoints);
+    }
+  }
+
+  /**
+   * Builds the index of every encoding CSV in a PGF encoding archive.
+   * <p>
+   * Usage: {@code EncodingIndex <pgf-encoding.zip> <output directory>}
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("Usage: EncodingIndex <pgf-encoding.zip> <output directory>");
+      System.exit(1);
+    }
+    Path outputDirectory = Path.of(args[1]);
+    try (ZipFile zipFile = new ZipFile(args[0])) {
+      Enumeration<? extends ZipEntry> entries = zipFile.entries();
+      while (entries.hasMoreElements()) {
+        ZipEntry entry = entries.nextElement();
+        if (entry.isDirectory() || !entry.getName().contains("/encoding/") || !entry.getName().endsWith(".csv")) {
+          continue;
+        }
+        Table table;
+        try (InputStream inputStream = zipFile.getInputStream(entry)) {
+          table = parseCsv(inputStream);
+        }
+        Path path = outputDirectory.resolve(fileName(entry));
+        write(path, entry, table);
+        System.out.println("Wrote " + table.keys().length + " glyphs to " + path);
+      }
+    }
+  }
+}
@@ -2,206 +2,263 @@ package com.protomaps.basemap.text;
 
 import java.awt.Font;
 import java.awt.FontFormatException;
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.util.ArrayList;
+import java.nio.file.Path;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Registry of the font bundles used to encode names with PGF.
+ * <p>
+ * Bundles are loaded once at startup with {@link #loadFontBundles} and published as an immutable {@link Snapshot}, so
+ * lookups from worker threads take no locks and allocate nothing.
+ */
 public class FontRegistry {
   private static final Logger LOGGER = LoggerFactory.getLogger(FontRegistry.class);
 
-  private class FontBundle {
-    public String name;
-    public String version;
-    public Font font;
-    public Map<String, Integer> encoding;
-
-    public FontBundle(String name, String version, Font font, Map<String, Integer> encoding) {
-      this.name = name;
-      this.version = version;
-      this.font = font;
-      this.encoding = encoding;
+  private static final FontRegistry INSTANCE = new FontRegistry();
+
+  public static final int DEFAULT_ENCODING_CACHE_SIZE = 100_000;
+
+  private record FontBundle(String name, String version, Font font, GlyphEncoding encoding,
+    EncodingCache encodingCache) {}
+
+  private record Snapshot(Map<String, FontBundle> bundles, List<String> scripts, Set<String> scriptSet,
+    SegmentTable segmentTable) {
+    static final Snapshot EMPTY = new Snapshot(Map.of(), List.of(), Set.of(), SegmentTable.EMPTY);
+
+    static Snapshot of(Map<String, FontBundle> bundles) {
+      List<String> scripts = bundles.keySet().stream().sorted().toList();
+      return new Snapshot(Map.copyOf(bundles), scripts, Set.copyOf(scripts), SegmentTable.of(scripts));
     }
   }
 
-  private HashMap<String, FontBundle> registry;
-  private static String zipFilePath;
-  private static FontRegistry instance;
+  /**
+   * A font bundle in the PGF encoding archive and the script it encodes.
+   */
+  public record BundleSource(String name, String version, String script) {}
 
-  private FontRegistry() {
-    this.registry = new HashMap<>();
-  }
+  private static volatile String zipFilePath;
+  private volatile Path indexDirectory;
+  private volatile int encodingCacheSize = DEFAULT_ENCODING_CACHE_SIZE;
+  private volatile Snapshot snapshot = Snapshot.EMPTY;
 
-  public static synchronized FontRegistry getInstance() {
-    if (instance == null) {
-      instance = new FontRegistry();
-    }
-    return instance;
+  private FontRegistry() {}
+
+  public static FontRegistry getInstance() {
+    return INSTANCE;
   }
 
-  private static String getTopLevelFolderName() throws IOException {
-    if (zipFilePath == null) {
-      return null;
-    }
+  private static String getTopLevelFolderName(ZipFile zipFile) {
+    Enumeration<? extends ZipEntry> entries = zipFile.entries();
+    while (entries.hasMoreElements()) {
+      ZipEntry entry = entries.nextElement();
+      String entryName = entry.getName();
 
-    try (ZipFile zipFile = new ZipFile(zipFilePath)) {
-      Enumeration<? extends ZipEntry> entries = zipFile.entries();
-      while (entries.hasMoreElements()) {
-        ZipEntry entry = entries.nextElement();
-        String entryName = entry.getName();
-
-        if (entry.isDirectory() && entryName.endsWith("/")) {
-          int slashIndex = entryName.indexOf('/');
-          if (slashIndex == entryName.length() - 1) {
-            return entryName.substring(0, slashIndex);
-          }
+      if (entry.isDirectory() && entryName.endsWith("/")) {
+        int slashIndex = entryName.indexOf('/');
+        if (slashIndex == entryName.length() - 1) {
+          return entryName.substring(0, slashIndex);
         }
       }
     }
     return null;
   }
 
-  private static Font readFont(String name) {
+  private static Font readFont(ZipFile zipFile, String topLevelFolder, String name) {
     Font font = null;
 
-    if (zipFilePath == null) {
-      return null;
-    }
-
-    try (ZipFile zipFile = new ZipFile(zipFilePath)) {
-      String topLevelFolder = getTopLevelFolderName();
-      String fileNameInZip = topLevelFolder + "/fonts/" + name + ".ttf";
-      ZipEntry zipEntry = zipFile.getEntry(fileNameInZip);
+    String fileNameInZip = topLevelFolder + "/fonts/" + name + ".ttf";
+    ZipEntry zipEntry = zipFile.getEntry(fileNameInZip);
 
-      if (zipEntry != null) {
-        try (InputStream inputStream = zipFile.getInputStream(zipEntry)) {
-          font = Font.createFont(Font.TRUETYPE_FONT, inputStream);
-        }
-      } else {
-        LOGGER.error("readFont(): File " + fileNameInZip + " not found in the ZIP archive " + zipFilePath);
+    if (zipEntry != null) {
+      try (InputStream inputStream = zipFile.getInputStream(zipEntry)) {
+        font = Font.createFont(Font.TRUETYPE_FONT, inputStream);
+      } catch (IOException | FontFormatException e) {
+        LOGGER.error("Error", e);
         System.exit(1);
       }
-    } catch (IOException | FontFormatException e) {
-      LOGGER.error("Error", e);
+    } else {
+      LOGGER.error("readFont(): File " + fileNameInZip + " not found in the ZIP archive " + zipFilePath);
       System.exit(1);
     }
 
     return font;
   }
 
-  public static String getGlyphKey(int index, int xOffset, int yOffset, int xAdvance, int yAdvance) {
-    return Integer.toString(index) + "|" +
-      Integer.toString(xOffset) + "|" +
-      Integer.toString(yOffset) + "|" +
-      Integer.toString(xAdvance) + "|" +
-      Integer.toString(yAdvance);
-  }
+  private static GlyphEncoding readEncoding(ZipFile zipFile, String topLevelFolder, Path indexDirectory, String name,
+    String version) {
+    String fileNameInZip = topLevelFolder + "/encoding/" + name + "-v" + version + ".csv";
+    ZipEntry zipEntry = zipFile.getEntry(fileNameInZip);
 
-  private static HashMap<String, Integer> readEncoding(String name, String version) {
-    HashMap<String, Integer> encoding = new HashMap<>();
-
-    if (zipFilePath == null) {
-      return new HashMap<>();
+    if (zipEntry == null) {
+      LOGGER.error("readEncoding(): File " + fileNameInZip + " not found in the ZIP archive " + zipFilePath);
+      System.exit(1);
     }
 
-    try (ZipFile zipFile = new ZipFile(zipFilePath)) {
-      String topLevelFolder = getTopLevelFolderName();
-      String fileNameInZip = topLevelFolder + "/encoding/" + name + "-v" + version + ".csv";
-      ZipEntry zipEntry = zipFile.getEntry(fileNameInZip);
-
-      if (zipEntry != null) {
+    Path indexPath = indexDirectory == null ? null : indexDirectory.resolve(EncodingIndex.fileName(zipEntry));
+    EncodingIndex.Table table = null;
+    try {
+      if (indexPath != null) {
+        table = EncodingIndex.read(indexPath, zipEntry);
+      }
+      if (table == null) {
         try (InputStream inputStream = zipFile.getInputStream(zipEntry)) {
-          BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
-          reader.readLine(); // skip header
-          String line = reader.readLine();
-          while (line != null) {
-            String[] parts = line.split(",");
-
-            int index = Integer.parseInt(parts[0].trim());
-            int xOffset = Integer.parseInt(parts[1].trim());
-            int yOffset = Integer.parseInt(parts[2].trim());
-            int xAdvance = Integer.parseInt(parts[3].trim());
-            int yAdvance = Integer.parseInt(parts[4].trim());
-            int codepoint = Integer.parseInt(parts[5].trim());
-
-            String key = getGlyphKey(index, xOffset, yOffset, xAdvance, yAdvance);
-            encoding.put(key, codepoint);
-            line = reader.readLine();
-          }
+          table = EncodingIndex.parseCsv(inputStream);
+        }
+        if (indexPath != null) {
+          EncodingIndex.write(indexPath, zipEntry, table);
         }
-      } else {
-        System.out.println("readEncoding(): File " + fileNameInZip + " not found in the ZIP archive " + zipFilePath);
-        System.exit(1);
       }
     } catch (IOException e) {
-      e.printStackTrace();
+      LOGGER.error("Error", e);
       System.exit(1);
     }
 
-    return encoding;
+    return table.toEncoding();
+  }
+
+  private static FontBundle readFontBundle(ZipFile zipFile, String topLevelFolder, Path indexDirectory,
+    BundleSource source, int encodingCacheSize) {
+    Font font = readFont(zipFile, topLevelFolder, source.name());
+
+    GlyphEncoding encoding = readEncoding(zipFile, topLevelFolder, indexDirectory, source.name(), source.version());
+
+    EncodingCache encodingCache =
+      new EncodingCache(encodingCacheSize, text -> TextEngine.encode(text, font, encoding));
+
+    return new FontBundle(source.name(), source.version(), font, encoding, encodingCache);
   }
 
   public synchronized void setZipFilePath(String zipFilePath_) {
     zipFilePath = zipFilePath_;
   }
 
-  public synchronized void loadFontBundle(String name, String version, String script) {
+  /**
+   * Sets the directory holding the binary {@link EncodingIndex} of each encoding, written on first load and
+   * read afterwards. Without it, encodings are parsed from the CSVs in the archive every time.
+   */
+  public void setIndexDirectory(Path indexDirectory) {
+    this.indexDirectory = indexDirectory;
+  }
+
+  /**
+   * Sets the maximum number of encoded segments cached per script, 0 disables caching.
+   * <p>
+   * Only applies to bundles loaded afterwards.
+   */
+  public void setEncodingCacheSize(int encodingCacheSize) {
+    this.encodingCacheSize = encodingCacheSize;
+  }
 
-    if (zipFilePath == null) {
+  public void loadFontBundle(String name, String version, String script) {
+    loadFontBundles(List.of(new BundleSource(name, version, script)));
+  }
+
+  /**
+   * Loads several bundles in parallel from a single open archive and publishes them together.
+   */
+  public synchronized void loadFontBundles(List<BundleSource> sources) {
+
+    if (zipFilePath == null || sources.isEmpty()) {
       return;
     }
 
-    Font font = readFont(name);
+    long start = System.nanoTime();
+    Map<String, FontBundle> bundles = new HashMap<>(snapshot.bundles());
 
-    HashMap<String, Integer> encoding = readEncoding(name, version);
+    try (ZipFile zipFile = new ZipFile(zipFilePath)) {
+      String topLevelFolder = getTopLevelFolderName(zipFile);
+      Path indexDirectory = this.indexDirectory;
+      int encodingCacheSize = this.encodingCacheSize;
+
+      List<FontBundle> loaded = sources.parallelStream()
+        .map(source -> readFontBundle(zipFile, topLevelFolder, indexDirectory, source, encodingCacheSize))
+        .toList();
 
-    FontBundle fontBundle = new FontBundle(name, version, font, encoding);
+      for (int i = 0; i < sources.size(); i++) {
+        bundles.put(sources.get(i).script(), loaded.get(i));
+      }
+    } catch (IOException e) {
+      LOGGER.error("Error", e);
+      System.exit(1);
+    }
 
-    registry.put(script, fontBundle);
+    // copy-on-write: readers keep using the previous snapshot until the new one is published
+    snapshot = Snapshot.of(bundles);
+    TextMetrics.bundlesLoaded(System.nanoTime() - start);
   }
 
   public String getName(String script) {
-    FontBundle fontBundle = registry.get(script);
+    FontBundle fontBundle = snapshot.bundles().get(script);
     if (fontBundle == null) {
       return null;
     }
-    return fontBundle.name;
+    return fontBundle.name();
   }
 
   public String getVersion(String script) {
-    FontBundle fontBundle = registry.get(script);
+    FontBundle fontBundle = snapshot.bundles().get(script);
     if (fontBundle == null) {
       return null;
     }
-    return fontBundle.version;
+    return fontBundle.version();
   }
 
   public Font getFont(String script) {
-    FontBundle fontBundle = registry.get(script);
+    FontBundle fontBundle = snapshot.bundles().get(script);
     if (fontBundle == null) {
       return null;
     }
-    return fontBundle.font;
+    return fontBundle.font();
   }
 
-  public Map<String, Integer> getEncoding(String script) {
-    FontBundle fontBundle = registry.get(script);
+  public GlyphEncoding getEncoding(String script) {
+    FontBundle fontBundle = snapshot.bundles().get(script);
     if (fontBundle == null) {
-      return new HashMap<>();
+      return GlyphEncoding.EMPTY;
     }
-    return fontBundle.encoding;
+    return fontBundle.encoding();
   }
 
+  /**
+   * Returns the cache in front of {@link TextEngine#encode} for the bundle of {@code script}, or null if the script is
+   * not registered.
+   */
+  public EncodingCache getEncodingCache(String script) {
+    FontBundle fontBundle = snapshot.bundles().get(script);
+    if (fontBundle == null) {
+      return null;
+    }
+    return fontBundle.encodingCache();
+  }
+
+  /**
+   * Returns the registered scripts in sorted order.
+   * <p>
+   * The list is immutable and shared between callers, do not modify it.
+   */
   public List<String> getScripts() {
-    return new ArrayList<>(registry.keySet());
+    return snapshot.scripts();
+  }
+
+  /**
+   * Returns the table splitting text into runs inside and outside of the registered scripts, rebuilt whenever a bundle
+   * is loaded.
+   */
+  public SegmentTable getSegmentTable() {
+    return snapshot.segmentTable();
+  }
+
+  public boolean hasScript(String script) {
+    return script != null && snapshot.scriptSet().contains(script);
   }
 }
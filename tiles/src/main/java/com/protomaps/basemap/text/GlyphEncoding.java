@@ -0,0 +1,223 @@
+package com.protomaps.basemap.text;
+
+import com.carrotsearch.hppc.LongIntHashMap;
+import com.carrotsearch.hppc.cursors.LongIntCursor;
+import java.util.Arrays;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * The PGF encoding table of one font, mapping a shaped glyph (index, xOffset, yOffset, xAdvance, yAdvance) to the
+ * private use codepoint that renders it.
+ * <p>
+ * The five glyph fields are packed into a single primitive {@code long} key so that lookups allocate nothing. The glyph
+ * index takes the upper 16 bits and each metric takes 12 bits, biased to cover {@code [-2048, 2047]}.
+ * <p>
+ * Shaping does not always reproduce the exact horizontal metrics of the encoding, so {@link #nearest} also searches a
+ * second table sorted by (index, yOffset, yAdvance, xOffset, xAdvance) for the closest xOffset and xAdvance.
+ **/
+@Immutable
+public final class GlyphEncoding {
+
+  public static final int MISSING = -1;
+
+  static final GlyphEncoding EMPTY = new GlyphEncoding(new LongIntHashMap(0));
+
+  private static final int METRIC_BITS = 12;
+  private static final int METRIC_BIAS = 1 << (METRIC_BITS - 1);
+  private static final int METRIC_MASK = (1 << METRIC_BITS) - 1;
+  private static final int INDEX_MASK = 0xFFFF;
+
+  private final LongIntHashMap codepoints;
+  // keys of nearKey() with the sign bit flipped so that signed order matches unsigned order, sorted
+  private final long[] nearKeys;
+  private final int[] nearCodepoints;
+
+  GlyphEncoding(LongIntHashMap codepoints) {
+    this.codepoints = codepoints;
+
+    long[] keys = new long[codepoints.size()];
+    int i = 0;
+    for (LongIntCursor cursor : codepoints) {
+      keys[i++] = nearKey(cursor.key) ^ Long.MIN_VALUE;
+    }
+    Arrays.sort(keys);
+    this.nearKeys = keys;
+    this.nearCodepoints = new int[keys.length];
+    for (i = 0; i < keys.length; i++) {
+      nearCodepoints[i] = codepoints.get(key(keys[i] ^ Long.MIN_VALUE));
+    }
+  }
+
+  private static boolean inRange(int metric) {
+    return metric >= -METRIC_BIAS && metric < METRIC_BIAS;
+  }
+
+  static boolean isValid(int index, int xOffset, int yOffset, int xAdvance, int yAdvance) {
+    return (index & ~INDEX_MASK) == 0 && inRange(xOffset) && inRange(yOffset) && inRange(xAdvance) &&
+      inRange(yAdvance);
+  }
+
+  private static long pack(int index, int a, int b, int c, int d) {
+    return ((long) index << (4 * METRIC_BITS)) |
+      ((long) ((a + METRIC_BIAS) & METRIC_MASK) << (3 * METRIC_BITS)) |
+      ((long) ((b + METRIC_BIAS) & METRIC_MASK) << (2 * METRIC_BITS)) |
+      ((long) ((c + METRIC_BIAS) & METRIC_MASK) << METRIC_BITS) |
+      ((d + METRIC_BIAS) & METRIC_MASK);
+  }
+
+  private static int field(long packed, int slot) {
+    return (int) ((packed >>> (slot * METRIC_BITS)) & METRIC_MASK) - METRIC_BIAS;
+  }
+
+  /**
+   * Packs a glyph into its key, the fields must satisfy {@link #isValid}.
+   */
+  static long key(int index, int xOffset, int yOffset, int xAdvance, int yAdvance) {
+    return pack(index, xOffset, yOffset, xAdvance, yAdvance);
+  }
+
+  // key ordered for the nearest search: fields that must match exactly first, then xOffset and xAdvance
+  private static long nearKey(int index, int xOffset, int yOffset, int xAdvance, int yAdvance) {
+    return pack(index, yOffset, yAdvance, xOffset, xAdvance);
+  }
+
+  private static long nearKey(long key) {
+    return nearKey((int) (key >>> (4 * METRIC_BITS)), field(key, 3), field(key, 2), field(key, 1), field(key, 0));
+  }
+
+  private static long key(long nearKey) {
+    return key((int) (nearKey >>> (4 * METRIC_BITS)), field(nearKey, 1), field(nearKey, 3), field(nearKey, 0),
+      field(nearKey, 2));
+  }
+
+  /**
+   * Returns the codepoint of a glyph, or {@link #MISSING} if the glyph is not in the table.
+   */
+  public int get(int index, int xOffset, int yOffset, int xAdvance, int yAdvance) {
+    if (!isValid(index, xOffset, yOffset, xAdvance, yAdvance)) {
+      return MISSING;
+    }
+    return codepoints.getOrDefault(key(index, xOffset, yOffset, xAdvance, yAdvance), MISSING);
+  }
+
+  private int lowerBound(long flippedKey) {
+    int lo = 0;
+    int hi = nearKeys.length;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (nearKeys[mid] < flippedKey) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  /**
+   * Returns the codepoint of the glyph with the same index, yOffset and yAdvance whose xOffset and xAdvance are closest
+   * by Manhattan distance, or {@link #MISSING} if none is within {@code tolerance}.
+   * <p>
+   * Ties prefer the smaller xOffset, then the larger xAdvance.
+   */
+  public int nearest(int index, int xOffset, int yOffset, int xAdvance, int yAdvance, int tolerance) {
+    return matchCodepoint(nearestMatch(index, xOffset, yOffset, xAdvance, yAdvance, tolerance));
+  }
+
+  /**
+   * Like {@link #nearest}, but also returns the distance of the match, read with {@link #matchCodepoint} and
+   * {@link #matchDistance}.
+   */
+  long nearestMatch(int index, int xOffset, int yOffset, int xAdvance, int yAdvance, int tolerance) {
+    int exact = get(index, xOffset, yOffset, xAdvance, yAdvance);
+    if (exact != MISSING || tolerance <= 0 || !isValid(index, 0, yOffset, 0, yAdvance)) {
+      return match(exact, 0);
+    }
+
+    int bestDistance = Integer.MAX_VALUE;
+    int bestDeltaXOffset = 0;
+    int bestDeltaXAdvance = 0;
+    int bestCodepoint = MISSING;
+
+    // ascending xOffset, so the first candidate at a distance wins ties on xOffset
+    for (int deltaXOffset = -tolerance; deltaXOffset <= tolerance; deltaXOffset++) {
+      int candidateXOffset = xOffset + deltaXOffset;
+      int remaining = tolerance - Math.abs(deltaXOffset);
+      if (!inRange(candidateXOffset) || Math.abs(deltaXOffset) > bestDistance) {
+        continue;
+      }
+      int minXAdvance = Math.max(-METRIC_BIAS, xAdvance - remaining);
+      int maxXAdvance = Math.min(METRIC_BIAS - 1, xAdvance + remaining);
+      if (minXAdvance > maxXAdvance) {
+        continue;
+      }
+
+      long from = nearKey(index, candidateXOffset, yOffset, minXAdvance, yAdvance) ^ Long.MIN_VALUE;
+      long to = nearKey(index, candidateXOffset, yOffset, maxXAdvance, yAdvance) ^ Long.MIN_VALUE;
+      for (int i = lowerBound(from); i < nearKeys.length && nearKeys[i] <= to; i++) {
+        int deltaXAdvance = field(nearKeys[i] ^ Long.MIN_VALUE, 0) - xAdvance;
+        int distance = Math.abs(deltaXOffset) + Math.abs(deltaXAdvance);
+        if (distance < bestDistance ||
+          (distance == bestDistance && deltaXOffset == bestDeltaXOffset && deltaXAdvance > bestDeltaXAdvance)) {
+          bestDistance = distance;
+          bestDeltaXOffset = deltaXOffset;
+          bestDeltaXAdvance = deltaXAdvance;
+          bestCodepoint = nearCodepoints[i];
+        }
+      }
+    }
+
+    return match(bestCodepoint, bestDistance);
+  }
+
+  private static long match(int codepoint, int distance) {
+    return ((long) distance << 32) | (codepoint & 0xFFFFFFFFL);
+  }
+
+  static int matchCodepoint(long match) {
+    return (int) match;
+  }
+
+  static int matchDistance(long match) {
+    return (int) (match >>> 32);
+  }
+
+  public int size() {
+    return codepoints.size();
+  }
+
+  /**
+   * Collects the rows of an encoding table.
+   */
+  static final class Builder {
+    private final LongIntHashMap codepoints;
+
+    Builder() {
+      this(0);
+    }
+
+    Builder(int expectedSize) {
+      codepoints = new LongIntHashMap(expectedSize);
+    }
+
+    Builder put(int index, int xOffset, int yOffset, int xAdvance, int yAdvance, int codepoint) {
+      if (!isValid(index, xOffset, yOffset, xAdvance, yAdvance)) {
+        throw new IllegalArgumentException("Glyph out of range for the packed encoding key: index = " + index +
+          ", xOffset = " + xOffset +
+          ", yOffset = " + yOffset +
+          ", xAdvance = " + xAdvance +
+          ", yAdvance = " + yAdvance);
+      }
+      return putKey(key(index, xOffset, yOffset, xAdvance, yAdvance), codepoint);
+    }
+
+    Builder putKey(long key, int codepoint) {
+      codepoints.put(key, codepoint);
+      return this;
+    }
+
+    GlyphEncoding build() {
+      return new GlyphEncoding(codepoints);
+    }
+  }
+}
@@ -0,0 +1,138 @@
+package com.protomaps.basemap.text;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Splits text into runs of codepoints that do and do not belong to a set of scripts.
+ * <p>
+ * A script is matched by its Unicode block, like {@code \p{InDevanagari}} in a regex. The blocks are flattened into a
+ * sorted table of codepoint ranges once, so {@link #segment} is a single linear scan over the text.
+ **/
+@Immutable
+public final class SegmentTable {
+
+  static final SegmentTable EMPTY = new SegmentTable(List.of(), new int[0], new int[0]);
+
+  // building a table scans every codepoint, so each set of scripts is built once
+  private static final Map<Set<String>, SegmentTable> cache = new ConcurrentHashMap<>();
+
+  private final List<String> scripts;
+  // inclusive codepoint ranges, sorted and non-overlapping
+  private final int[] starts;
+  private final int[] ends;
+
+  private SegmentTable(List<String> scripts, int[] starts, int[] ends) {
+    this.scripts = scripts;
+    this.starts = starts;
+    this.ends = ends;
+  }
+
+  /**
+   * Builds the table for the Unicode blocks named by {@code scripts}.
+   *
+   * @throws IllegalArgumentException if a name is not a Unicode block.
+   */
+  public static SegmentTable of(List<String> scripts) {
+    if (scripts.isEmpty()) {
+      return EMPTY;
+    }
+
+    Set<Character.UnicodeBlock> blocks = new HashSet<>();
+    for (String script : scripts) {
+      blocks.add(Character.UnicodeBlock.forName(script));
+    }
+
+    int[] starts = new int[8];
+    int[] ends = new int[8];
+    int count = 0;
+    boolean inside = false;
+    for (int cp = 0; cp <= Character.MAX_CODE_POINT; cp++) {
+      boolean member = blocks.contains(Character.UnicodeBlock.of(cp));
+      if (member && !inside) {
+        if (count == starts.length) {
+          starts = Arrays.copyOf(starts, count * 2);
+          ends = Arrays.copyOf(ends, count * 2);
+        }
+        starts[count] = cp;
+      } else if (!member && inside) {
+        ends[count++] = cp - 1;
+      }
+      inside = member;
+    }
+    if (inside) {
+      ends[count++] = Character.MAX_CODE_POINT;
+    }
+
+    return new SegmentTable(List.copyOf(scripts), Arrays.copyOf(starts, count), Arrays.copyOf(ends, count));
+  }
+
+  /**
+   * Returns the table for {@code scripts}, built on the first call for the same set of scripts in any order.
+   *
+   * @throws IllegalArgumentException if a name is not a Unicode block.
+   */
+  public static SegmentTable forScripts(List<String> scripts) {
+    return cache.computeIfAbsent(Set.copyOf(scripts), k -> of(scripts));
+  }
+
+  public List<String> scripts() {
+    return scripts;
+  }
+
+  public boolean contains(int codepoint) {
+    int lo = 0;
+    int hi = starts.length - 1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      if (codepoint < starts[mid]) {
+        hi = mid - 1;
+      } else if (codepoint > ends[mid]) {
+        lo = mid + 1;
+      } else {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the maximal runs of {@code text} that alternate between codepoints inside and outside of the table.
+   */
+  public List<String> segment(String text) {
+    List<String> segments = new ArrayList<>();
+
+    if (text == null || text.isEmpty()) {
+      return segments;
+    }
+
+    if (starts.length == 0) {
+      segments.add(text);
+      return segments;
+    }
+
+    int segmentStart = 0;
+    int cp = text.codePointAt(0);
+    boolean inside = contains(cp);
+    int i = Character.charCount(cp);
+    while (i < text.length()) {
+      cp = text.codePointAt(i);
+      boolean member = contains(cp);
+      if (member != inside) {
+        segments.add(text.substring(segmentStart, i));
+        segmentStart = i;
+        inside = member;
+      }
+      i += Character.charCount(cp);
+    }
+    segments.add(text.substring(segmentStart));
+
+    return segments;
+  }
+}
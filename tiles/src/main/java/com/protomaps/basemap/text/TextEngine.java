@@ -5,86 +5,46 @@ import java.awt.Font;
 import java.awt.font.FontRenderContext;
 import java.awt.font.GlyphMetrics;
 import java.awt.font.GlyphVector;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class TextEngine {
   private static final Logger LOGGER = LoggerFactory.getLogger(TextEngine.class);
 
-  private static Integer[][] deltas = new Integer[][]{
-    {0, 0},
-    {-1, 0},
-    {0, 1},
-    {0, -1},
-    {1, 0},
-    {-2, 0},
-    {-1, 1},
-    {-1, -1},
-    {0, 2},
-    {0, -2},
-    {1, 1},
-    {1, -1},
-    {2, 0},
-    {-3, 0},
-    {-2, 1},
-    {-2, -1},
-    {-1, 2},
-    {-1, -2},
-    {0, 3},
-    {0, -3},
-    {1, 2},
-    {1, -2},
-    {2, 1},
-    {2, -1},
-    {3, 0},
-    {-4, 0},
-    {-3, 1},
-    {-3, -1},
-    {-2, 2},
-    {-2, -2},
-    {-1, 3},
-    {-1, -3},
-    {0, 4},
-    {0, -4},
-    {1, 3},
-    {1, -3},
-    {2, 2},
-    {2, -2},
-    {3, 1},
-    {3, -1},
-    {4, 0},
-  };
-
-  private static int codepointFromGlyph(Map<String, Integer> encoding, int index, int xOffset, int yOffset,
+  /**
+   * Default Manhattan distance between the shaped and the encoded (xOffset, xAdvance) of a glyph that still counts as
+   * a match.
+   */
+  public static final int DEFAULT_GLYPH_TOLERANCE = 4;
+
+  private static volatile int glyphTolerance = DEFAULT_GLYPH_TOLERANCE;
+
+  public static void setGlyphTolerance(int tolerance) {
+    glyphTolerance = tolerance;
+  }
+
+  private static int codepointFromGlyph(GlyphEncoding encoding, int index, int xOffset, int yOffset,
     int xAdvance, int yAdvance) {
 
-    for (int i = 0; i < deltas.length; ++i) {
-      int deltaXOffset = deltas[i][0];
-      int deltaXAdvance = deltas[i][1];
-      String glyphKey =
-        FontRegistry.getGlyphKey(index, xOffset + deltaXOffset, yOffset, xAdvance + deltaXAdvance, yAdvance);
-      if (encoding.get(glyphKey) != null) {
-        return encoding.get(glyphKey);
-      }
+    long match = encoding.nearestMatch(index, xOffset, yOffset, xAdvance, yAdvance, glyphTolerance);
+    int codepoint = GlyphEncoding.matchCodepoint(match);
+    if (codepoint != GlyphEncoding.MISSING) {
+      TextMetrics.glyphMatched(GlyphEncoding.matchDistance(match));
+      return codepoint;
     }
-    LOGGER.error("Could not find a matching glyph for index = " + index +
-      ", xOffset = " + xOffset +
-      ", yOffset = " + yOffset +
-      ", xAdvance = " + xAdvance +
-      ", yAdvance = " + yAdvance + ". Inserting an exclamation mark.");
+
+    TextMetrics.glyphUnresolved();
+    LOGGER.debug("Could not find a matching glyph for index = {}, xOffset = {}, yOffset = {}, xAdvance = {}, " +
+      "yAdvance = {}. Inserting an exclamation mark.", index, xOffset, yOffset, xAdvance, yAdvance);
 
     // Unicode decimal 33 == "!"
     // Excalmation mark means did not find a matching codepoint
     return 33;
   }
 
-  public static String encode(String text, Font font, Map<String, Integer> encoding) {
-    String result = "";
+  public static String encode(String text, Font font, GlyphEncoding encoding) {
+    StringBuilder result = new StringBuilder(text.length());
 
     FontRenderContext frc = new FontRenderContext(null, true, true);
     char[] charArray = text.toCharArray();
@@ -110,36 +70,23 @@ public class TextEngine {
 
       sumXAdvances += xAdvance;
 
-      result += new StringBuilder().appendCodePoint(codepoint).toString();
+      result.appendCodePoint(codepoint);
     }
-    return result;
+    return result.toString();
   }
 
+  /**
+   * Splits text into runs inside and outside of the Unicode blocks of {@code scripts}.
+   * <p>
+   * Reuses the registry's precompiled table when {@code scripts} are the registered scripts, and otherwise the table
+   * cached for the same scripts by {@link SegmentTable#forScripts}.
+   */
   public static List<String> segment(String text, List<String> scripts) {
-    List<String> segments = new ArrayList<>();
-
-    if (text == null || text.isEmpty()) {
-      return segments;
+    SegmentTable table = FontRegistry.getInstance().getSegmentTable();
+    if (!table.scripts().equals(scripts)) {
+      table = SegmentTable.forScripts(scripts);
     }
-
-    if (scripts.isEmpty()) {
-      return new ArrayList<>(List.of(text));
-    }
-
-    String inner = "";
-    for (String script : scripts) {
-      inner += "\\p{In" + script + "}";
-    }
-    String regex = "[" + inner + "]+|[^" + inner + "]+";
-
-    Pattern pattern = Pattern.compile(regex);
-    Matcher matcher = pattern.matcher(text);
-
-    while (matcher.find()) {
-      segments.add(matcher.group());
-    }
-
-    return segments;
+    return table.segment(text);
   }
 
   public static String encodeRegisteredScripts(String text) {
@@ -147,12 +94,12 @@ public class TextEngine {
       return "";
     }
     FontRegistry fontRegistry = FontRegistry.getInstance();
-    List<String> segments = segment(text, fontRegistry.getScripts());
+    List<String> segments = fontRegistry.getSegmentTable().segment(text);
     String encodedText = "";
     for (String segment : segments) {
-      String script = Script.getScript(segment);
-      if (fontRegistry.getScripts().contains(script)) {
-        encodedText += TextEngine.encode(segment, fontRegistry.getFont(script), fontRegistry.getEncoding(script));
+      String script = Script.name(Script.classify(segment));
+      if (fontRegistry.hasScript(script)) {
+        encodedText += fontRegistry.getEncodingCache(script).get(segment);
       } else {
         encodedText += segment;
       }
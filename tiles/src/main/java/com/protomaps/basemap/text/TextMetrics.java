@@ -0,0 +1,114 @@
+package com.protomaps.basemap.text;
+
+import com.onthegomap.planetiler.stats.Counter;
+import com.onthegomap.planetiler.stats.Stats;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Counters of the PGF text pipeline, reported through Planetiler {@link Stats} once {@link #register} was called.
+ * <p>
+ * Per script: segments encoded, encoding cache hits and the time spent shaping with AWT, read from each bundle's
+ * {@link EncodingCache}. Per glyph: how far the nearest encoded glyph was from the shaped one, and how many glyphs had
+ * no match and were replaced by "!". Unresolved glyphs are also reported as data errors so they show up in the
+ * end-of-run summary.
+ */
+public final class TextMetrics {
+  private static final Logger LOGGER = LoggerFactory.getLogger(TextMetrics.class);
+
+  private static final int MAX_DISTANCE_BUCKET = 8;
+
+  private static final Counter.MultiThreadCounter[] matchDistance =
+    new Counter.MultiThreadCounter[MAX_DISTANCE_BUCKET + 1];
+  private static final Counter.MultiThreadCounter unresolvedGlyphs = Counter.newMultiThreadCounter();
+  private static final Counter.MultiThreadCounter bundleLoadNanos = Counter.newMultiThreadCounter();
+
+  private static volatile Stats stats;
+
+  static {
+    for (int i = 0; i < matchDistance.length; i++) {
+      matchDistance[i] = Counter.newMultiThreadCounter();
+    }
+  }
+
+  private TextMetrics() {}
+
+  static void glyphMatched(int distance) {
+    matchDistance[Math.min(distance, MAX_DISTANCE_BUCKET)].inc();
+  }
+
+  static void glyphUnresolved() {
+    unresolvedGlyphs.inc();
+    Stats current = stats;
+    if (current != null) {
+      current.dataError("pgf_unresolved_glyph");
+    }
+  }
+
+  static void bundlesLoaded(long nanos) {
+    bundleLoadNanos.incBy(nanos);
+  }
+
+  /**
+   * Returns how many shaped glyphs had no encoded glyph within the tolerance and were replaced by "!".
+   */
+  public static long getUnresolvedGlyphCount() {
+    return unresolvedGlyphs.get();
+  }
+
+  private static String distanceLabel(int bucket) {
+    return bucket == MAX_DISTANCE_BUCKET ? bucket + "+" : Integer.toString(bucket);
+  }
+
+  private static Map<String, LongSupplier> matchDistances() {
+    Map<String, LongSupplier> result = new LinkedHashMap<>();
+    for (int i = 0; i < matchDistance.length; i++) {
+      result.put(distanceLabel(i), matchDistance[i]);
+    }
+    result.put("unresolved", unresolvedGlyphs);
+    return result;
+  }
+
+  private static Map<String, LongSupplier> perScript(Function<EncodingCache, Counter.Readable> counter) {
+    FontRegistry fontRegistry = FontRegistry.getInstance();
+    Map<String, LongSupplier> result = new LinkedHashMap<>();
+    for (String script : fontRegistry.getScripts()) {
+      result.put(script, counter.apply(fontRegistry.getEncodingCache(script)));
+    }
+    return result;
+  }
+
+  public static void register(Stats stats) {
+    TextMetrics.stats = stats;
+    stats.counter("pgf_segments_encoded", "script", () -> perScript(EncodingCache::missCounter));
+    stats.counter("pgf_encoding_cache_hits", "script", () -> perScript(EncodingCache::hitCounter));
+    stats.counter("pgf_layout_nanos", "script", () -> perScript(EncodingCache::encoderNanos));
+    stats.counter("pgf_glyph_match_distance", "distance", TextMetrics::matchDistances);
+    stats.gauge("pgf_bundles", () -> FontRegistry.getInstance().getScripts().size());
+    stats.gauge("pgf_bundle_load_seconds", () -> bundleLoadNanos.get() / 1e9);
+  }
+
+  public static void logSummary() {
+    FontRegistry fontRegistry = FontRegistry.getInstance();
+    LOGGER.info("PGF bundles: {} loaded in {}ms", fontRegistry.getScripts().size(), bundleLoadNanos.get() / 1_000_000);
+    for (String script : fontRegistry.getScripts()) {
+      EncodingCache cache = fontRegistry.getEncodingCache(script);
+      LOGGER.info("PGF {}: {} segments encoded in {}ms, {} cache hits, {} cache entries", script, cache.misses(),
+        cache.encoderNanos().get() / 1_000_000, cache.hits(), cache.size());
+    }
+
+    StringBuilder distances = new StringBuilder();
+    for (int i = 0; i < matchDistance.length; i++) {
+      distances.append(i == 0 ? "" : " ").append(distanceLabel(i)).append('=').append(matchDistance[i].get());
+    }
+    LOGGER.info("PGF glyph match distance: {}", distances);
+
+    if (unresolvedGlyphs.get() > 0) {
+      LOGGER.warn("PGF encoding: {} glyphs without a match were replaced by \"!\"", unresolvedGlyphs.get());
+    }
+  }
+}
@@ -1,8 +1,13 @@
 package com.protomaps.basemap.feature;
 
+import static com.onthegomap.planetiler.TestUtils.newLineString;
 import static com.onthegomap.planetiler.TestUtils.newPoint;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.Optional;
 import org.junit.jupiter.api.Test;
 
@@ -49,4 +54,65 @@ class CountryCoderTest {
       "{\"type\":\"FeatureCollection\",\"features\":[{\"type\":\"Feature\",\"properties\":{\"country\":\"GB\",\"nameEn\":\"Great Britain\"},\"geometry\":{\"type\":\"MultiPolygon\",\"coordinates\":[[[[0,0],[0,1],[1,1],[0,0]]]]}}]}");
     assertEquals(Optional.of("GB"), c.getCountryCode(newPoint(0.1, 0.9)));
   }
+
+  private static final String SQUARES =
+    "{\"type\":\"FeatureCollection\",\"features\":[" +
+      "{\"type\":\"Feature\",\"properties\":{\"iso1A2\":\"AA\",\"nameEn\":\"A\"},\"geometry\":{\"type\":\"MultiPolygon\",\"coordinates\":[[[[0,0],[10,0],[10,10],[0,10],[0,0]]]]}}," +
+      "{\"type\":\"Feature\",\"properties\":{\"iso1A2\":\"BB\",\"nameEn\":\"B\"},\"geometry\":{\"type\":\"MultiPolygon\",\"coordinates\":[[[[10,0],[20,0],[20,10],[10,10],[10,0]]]]}}" +
+      "]}";
+
+  @Test
+  void testGridCells() {
+    CountryCoder c = CountryCoder.fromJsonString(SQUARES);
+    assertEquals(1, c.cell(5, 5));
+    assertEquals(2, c.cell(15, 5));
+    assertEquals(-1, c.cell(10, 5));
+    assertEquals(0, c.cell(50, 50));
+    assertEquals(-1, c.cell(0, 89));
+  }
+
+  @Test
+  void testLookupNearBorder() {
+    CountryCoder c = CountryCoder.fromJsonString(SQUARES);
+    assertEquals(Optional.of("AA"), c.getCountryCode(newPoint(9.999, 5)));
+    assertEquals(Optional.of("BB"), c.getCountryCode(newPoint(10.001, 5)));
+    assertEquals(Optional.empty(), c.getCountryCode(newPoint(15, 10.001)));
+  }
+
+  @Test
+  void testLookupLineByInteriorPoint() {
+    CountryCoder c = CountryCoder.fromJsonString(SQUARES);
+    assertEquals(Optional.of("AA"), c.getCountryCode(newLineString(1, 1, 2, 2, 3, 3)));
+    assertEquals(Optional.of("BB"), c.getCountryCode(newLineString(9, 5, 19, 5, 21, 5)));
+  }
+
+  @Test
+  void testOverlappingCountriesFallBack() {
+    CountryCoder c = CountryCoder.fromJsonString(
+      "{\"type\":\"FeatureCollection\",\"features\":[" +
+        "{\"type\":\"Feature\",\"properties\":{\"iso1A2\":\"AA\",\"nameEn\":\"A\"},\"geometry\":{\"type\":\"MultiPolygon\",\"coordinates\":[[[[0,0],[10,0],[10,10],[0,10],[0,0]]]]}}," +
+        "{\"type\":\"Feature\",\"properties\":{\"country\":\"AA\",\"nameEn\":\"A\"},\"geometry\":{\"type\":\"MultiPolygon\",\"coordinates\":[[[[0,0],[10,0],[10,10],[0,10],[0,0]]]]}}" +
+        "]}");
+    assertEquals(-1, c.cell(5, 5));
+    assertEquals(Optional.of("AA"), c.getCountryCode(newPoint(5, 5)));
+  }
+
+  @Test
+  void testWriteRead() throws IOException {
+    var out = new ByteArrayOutputStream();
+    CountryCoder.fromJsonString(SQUARES).write(out);
+    CountryCoder c = CountryCoder.read(new ByteArrayInputStream(out.toByteArray()));
+
+    assertEquals(-1, c.cell(10, 5));
+    assertEquals(0, c.cell(50, 50));
+    assertEquals(Optional.of("AA"), c.getCountryCode(newPoint(5, 5)));
+    assertEquals(Optional.of("AA"), c.getCountryCode(newPoint(9.999, 5)));
+    assertEquals(Optional.of("BB"), c.getCountryCode(newPoint(10.001, 5)));
+    assertEquals(Optional.empty(), c.getCountryCode(newPoint(15, 10.001)));
+  }
+
+  @Test
+  void testReadInvalid() {
+    assertThrows(IOException.class, () -> CountryCoder.read(new ByteArrayInputStream(new byte[]{1, 2, 3, 4})));
+  }
 }
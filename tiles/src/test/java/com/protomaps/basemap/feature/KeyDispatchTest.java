@@ -0,0 +1,132 @@
+package com.protomaps.basemap.feature;
+
+import static com.onthegomap.planetiler.TestUtils.newPoint;
+import static com.protomaps.basemap.feature.Matcher.rule;
+import static com.protomaps.basemap.feature.Matcher.use;
+import static com.protomaps.basemap.feature.Matcher.with;
+import static com.protomaps.basemap.feature.Matcher.without;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.onthegomap.planetiler.expression.Expression;
+import com.onthegomap.planetiler.reader.SimpleFeature;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class KeyDispatchTest {
+
+  private static SimpleFeature feature(Map<String, Object> tags) {
+    return SimpleFeature.create(newPoint(0, 0), tags, "osm", null, 0);
+  }
+
+  @Test
+  void testRequiredKeys() {
+    assertEquals(Set.of("a"), KeyDispatch.requiredKeys(with("a")));
+    assertEquals(Set.of("a"), KeyDispatch.requiredKeys(with("a", "b", "c")));
+    assertEquals(Set.of("a"), KeyDispatch.requiredKeys(Expression.and(with("a"), without("b"))));
+    assertEquals(Set.of("a", "b"), KeyDispatch.requiredKeys(Expression.or(with("a"), with("b", "c"))));
+    assertNull(KeyDispatch.requiredKeys(with()));
+    assertNull(KeyDispatch.requiredKeys(without("a")));
+    assertNull(KeyDispatch.requiredKeys(Expression.or(with("a"), without("b"))));
+  }
+
+  @Test
+  void testDispatch() {
+    var dispatch = KeyDispatch.ofOrdered("test", List.of(
+      rule(with("a", "b"), use("kind", "ab")),
+      rule(with("c"), use("kind", "c")),
+      rule(with("a", "d"), with("e"), use("kind", "ade"))
+    ));
+
+    assertArrayEquals(new int[]{0, 2}, dispatch.candidates("a"));
+    assertArrayEquals(new int[]{1}, dispatch.candidates("c"));
+    assertArrayEquals(new int[0], dispatch.candidates("e"));
+
+    assertTrue(dispatch.mayMatch(feature(Map.of("a", "x"))));
+    assertTrue(dispatch.mayMatch(feature(Map.of("c", "x", "f", "y", "g", "z", "h", "w"))));
+    assertFalse(dispatch.mayMatch(feature(Map.of("f", "x"))));
+    assertFalse(dispatch.mayMatch(feature(Map.of("e", "x", "f", "y", "g", "z", "h", "w"))));
+
+    assertEquals(List.of(Map.of("kind", "ab")), dispatch.getMatches(feature(Map.of("a", "b"))));
+    assertEquals(List.of(), dispatch.getMatches(feature(Map.of("a", "x"))));
+    assertEquals(List.of(), dispatch.getMatches(feature(Map.of("f", "x"))));
+  }
+
+  @Test
+  void testUnconditional() {
+    var dispatch = KeyDispatch.ofOrdered("test", List.of(
+      rule(with(), use("kind", "other")),
+      rule(with("a"), use("kind", "a"))
+    ));
+    assertTrue(dispatch.mayMatch(feature(Map.of("f", "x"))));
+    assertEquals(List.of(0), dispatch.report().unconditional());
+  }
+
+  @Test
+  void testReport() {
+    var dispatch = KeyDispatch.ofOrdered("test", List.of(
+      rule(with("a", "b"), use("kind", "ab")),
+      rule(with("a", "c"), use("kind", "ac"), use("minZoom", 3)),
+      rule(with("a", "b"), use("kind", "ab2")),
+      rule(with("d"), use("minZoom", 5)),
+      rule(with(), use("minZoom", 7))
+    ));
+
+    var report = dispatch.report();
+    assertEquals(5, report.rules());
+    assertEquals(Map.of("a", 3, "d", 1), report.keys());
+    assertEquals(List.of("#0 is always overridden by #2", "#3 is always overridden by #4"), report.deadRules());
+    assertEquals(List.of("a: 3 rule pairs set the same value", "#0 and #2 have the same condition"),
+      report.overlaps());
+  }
+
+  @Test
+  void testVirtualTagsAreLazy() {
+    var network = Matcher.virtualTag("_network_");
+    var country = Matcher.virtualTag("_country");
+    var dispatch = KeyDispatch.of("test_virtual", List.of(
+      rule(with("highway", "motorway"), with("_country", "US"), use("minZoom", 7)),
+      rule(with("_country", "US"), with("_network_US:I"), use("minZoom", 3))
+    ), network, country);
+
+    assertNull(dispatch.keys());
+    assertArrayEquals(new int[]{0}, dispatch.candidates("highway"));
+
+    List<String> calls = new ArrayList<>();
+    var providers = new VirtualTags("test_virtual")
+      .provide(network, sf -> {
+        calls.add("network");
+        if (sf.hasTag("ref", "I 5")) {
+          sf.setTag("_network_US:I", "yes");
+        }
+      })
+      .provide(country, sf -> {
+        calls.add("country");
+        sf.setTag("_country", "US");
+      });
+
+    assertEquals(List.of(), dispatch.getMatches(feature(new HashMap<>(Map.of("highway", "footway"))), providers));
+    assertEquals(List.of("network"), calls);
+
+    calls.clear();
+    assertEquals(List.of(Map.of("minZoom", 7)),
+      dispatch.getMatches(feature(new HashMap<>(Map.of("highway", "motorway"))), providers));
+    assertEquals(List.of("country", "network"), calls);
+
+    calls.clear();
+    assertEquals(List.of(Map.of("minZoom", 3)),
+      dispatch.getMatches(feature(new HashMap<>(Map.of("highway", "primary", "ref", "I 5"))), providers));
+    assertEquals(List.of("network", "country"), calls);
+
+    assertEquals(3, providers.evaluations(network));
+    assertEquals(2, providers.evaluations(country));
+    assertEquals(1, providers.skipped(country));
+  }
+}
@@ -8,7 +8,9 @@ import static com.protomaps.basemap.feature.Matcher.getBoolean;
 import static com.protomaps.basemap.feature.Matcher.getDouble;
 import static com.protomaps.basemap.feature.Matcher.getInteger;
 import static com.protomaps.basemap.feature.Matcher.getString;
+import static com.protomaps.basemap.feature.Matcher.resolve;
 import static com.protomaps.basemap.feature.Matcher.rule;
+import static com.protomaps.basemap.feature.Matcher.slot;
 import static com.protomaps.basemap.feature.Matcher.use;
 import static com.protomaps.basemap.feature.Matcher.with;
 import static com.protomaps.basemap.feature.Matcher.withLine;
@@ -19,6 +21,7 @@ import static com.protomaps.basemap.feature.Matcher.withoutLine;
 import static com.protomaps.basemap.feature.Matcher.withoutPoint;
 import static com.protomaps.basemap.feature.Matcher.withoutPolygon;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 
 import com.onthegomap.planetiler.expression.Expression;
 import com.onthegomap.planetiler.expression.MultiExpression;
@@ -700,4 +703,94 @@ class MatcherTest {
     assertEquals(true, getBoolean(sf, matches, "a", false));
   }
 
+  @Test
+  void testSlot() {
+    assertEquals(slot("a"), slot("a"));
+    assertEquals("a", slot("a").key());
+    assertNotEquals(slot("a").index(), slot("b").index());
+  }
+
+  @Test
+  void testResolve() {
+    var index = MultiExpression.ofOrdered(List.of(
+      rule(
+        with(),
+        use("a", "b"),
+        use("c", 1),
+        use("d", true)
+      ),
+      rule(
+        with("e"),
+        use("a", "f"),
+        use("g", 1.5)
+      )
+    )).index();
+
+    var sf = SimpleFeature.create(
+      newPoint(0, 0),
+      Map.of(),
+      "osm",
+      null,
+      0
+    );
+    var values = resolve(sf, index.getMatches(sf));
+    assertEquals("b", values.getString(slot("a"), "x"));
+    assertEquals(1, values.getInteger(slot("c"), 2));
+    assertEquals(true, values.getBoolean(slot("d"), false));
+    assertEquals(2.5, values.getDouble(slot("g"), 2.5));
+    // type mismatch and unknown keys fall back to the default
+    assertEquals("x", values.getString(slot("c"), "x"));
+    assertEquals("x", values.getString(slot("unused"), "x"));
+
+    sf = SimpleFeature.create(
+      newPoint(0, 0),
+      Map.of("e", "yes"),
+      "osm",
+      null,
+      0
+    );
+    values = resolve(sf, index.getMatches(sf));
+    assertEquals("f", values.getString(slot("a"), "x"));
+    assertEquals(1, values.getInteger(slot("c"), 2));
+    assertEquals(1.5, values.getDouble(slot("g"), 2.5));
+  }
+
+  @Test
+  void testResolveFromTag() {
+    var index = MultiExpression.ofOrdered(List.of(
+      rule(
+        with(),
+        use("a", fromTag("b")),
+        use("c", fromTag("d"))
+      )
+    )).index();
+
+    var sf = SimpleFeature.create(
+      newPoint(0, 0),
+      Map.of("b", "2", "d", "hello"),
+      "osm",
+      null,
+      0
+    );
+    var values = resolve(sf, index.getMatches(sf));
+    assertEquals(2, values.getInteger(slot("a"), 1));
+    assertEquals("2", values.getString(slot("a"), "x"));
+    assertEquals(1, values.getInteger(slot("c"), 1));
+    assertEquals("hello", values.getString(slot("c"), "x"));
+  }
+
+  @Test
+  void testResolveMatchesGetters() {
+    List<Map<String, Object>> matches = List.of(Map.of("a", "b"), Map.of("a", "c", "h", 3));
+    var sf = SimpleFeature.create(
+      newPoint(0, 0),
+      Map.of(),
+      "osm",
+      null,
+      0
+    );
+    var values = resolve(sf, matches);
+    assertEquals(getString(sf, matches, "a", "x"), values.getString(slot("a"), "x"));
+    assertEquals(getInteger(sf, matches, "h", 1), values.getInteger(slot("h"), 1));
+  }
 }
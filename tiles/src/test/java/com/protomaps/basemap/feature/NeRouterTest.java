@@ -0,0 +1,43 @@
+package com.protomaps.basemap.feature;
+
+import static com.onthegomap.planetiler.TestUtils.newPoint;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.onthegomap.planetiler.reader.SimpleFeature;
+import com.onthegomap.planetiler.stats.Stats;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class NeRouterTest {
+
+  private static SimpleFeature row(String table) {
+    return SimpleFeature.create(newPoint(0, 0), Map.of(), "ne", table, 0);
+  }
+
+  @Test
+  void testRoute() {
+    List<String> calls = new ArrayList<>();
+    var router = new NeRouter(Stats.inMemory())
+      .add(Set.of("ne_50m_land", "ne_10m_land"), (sf, features) -> calls.add("earth " + sf.getSourceLayer()))
+      .add(Set.of("ne_10m_land", "ne_10m_lakes"), (sf, features) -> calls.add("water " + sf.getSourceLayer()));
+
+    assertEquals(Set.of("ne_50m_land", "ne_10m_land", "ne_10m_lakes"), router.tables());
+
+    router.process(row("ne_10m_land"), null);
+    assertEquals(List.of("earth ne_10m_land", "water ne_10m_land"), calls);
+
+    calls.clear();
+    router.process(row("ne_10m_lakes"), null);
+    router.process(row("ne_10m_roads"), null);
+    router.process(row("ne_10m_roads"), null);
+    assertEquals(List.of("water ne_10m_lakes"), calls);
+
+    assertEquals(1, router.rows("ne_10m_land"));
+    assertEquals(0, router.rows("ne_50m_land"));
+    assertEquals(2, router.skipped("ne_10m_roads"));
+    assertEquals(0, router.skipped("ne_10m_land"));
+  }
+}
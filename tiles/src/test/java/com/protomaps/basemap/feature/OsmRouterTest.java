@@ -0,0 +1,66 @@
+package com.protomaps.basemap.feature;
+
+import static com.onthegomap.planetiler.TestUtils.newPoint;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.onthegomap.planetiler.reader.SimpleFeature;
+import com.onthegomap.planetiler.stats.Stats;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class OsmRouterTest {
+
+  private static SimpleFeature feature(Map<String, Object> tags) {
+    return SimpleFeature.create(newPoint(0, 0), tags, "osm", null, 0);
+  }
+
+  @Test
+  void testRoute() {
+    List<String> calls = new ArrayList<>();
+    var router = new OsmRouter(Stats.inMemory())
+      .add("always", (sf, features) -> calls.add("always"))
+      .add("buildings", Set.of("building", "building:part"), (sf, features) -> calls.add("buildings"))
+      .add("roads", Set.of("highway", "railway"), (sf, features) -> calls.add("roads"))
+      .add("none", Set.of(), (sf, features) -> calls.add("none"));
+
+    router.process(feature(Map.of("highway", "primary", "building", "yes")), null);
+    assertEquals(List.of("always", "buildings", "roads"), calls);
+
+    calls.clear();
+    router.process(feature(Map.of("railway", "rail")), null);
+    assertEquals(List.of("always", "roads"), calls);
+
+    calls.clear();
+    router.process(feature(Map.of("name", "x")), null);
+    assertEquals(List.of("always"), calls);
+
+    assertEquals(0, router.skipped("always"));
+    assertEquals(2, router.skipped("buildings"));
+    assertEquals(1, router.skipped("roads"));
+    assertEquals(3, router.skipped("none"));
+  }
+
+  @Test
+  void testNullKeysRouteEveryFeature() {
+    List<String> calls = new ArrayList<>();
+    var router = new OsmRouter(Stats.inMemory())
+      .add("all", null, (sf, features) -> calls.add("all"));
+    router.process(feature(Map.of()), null);
+    assertEquals(List.of("all"), calls);
+  }
+
+  @Test
+  void testTooManyHandlers() {
+    var router = new OsmRouter(Stats.inMemory());
+    for (int i = 0; i < Integer.SIZE; i++) {
+      router.add("handler" + i, Set.of("key" + i), (sf, features) -> {
+      });
+    }
+    assertThrows(IllegalStateException.class, () -> router.add("one more", (sf, features) -> {
+    }));
+  }
+}
@@ -0,0 +1,84 @@
+package com.protomaps.basemap.feature;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Envelope;
+
+class PackedRTreeTest {
+
+  private static List<Integer> query(PackedRTree tree, double x, double y) {
+    List<Integer> result = new ArrayList<>();
+    tree.query(x, y, result::add);
+    return result;
+  }
+
+  private static List<Envelope> grid(int size) {
+    List<Envelope> envelopes = new ArrayList<>();
+    for (int x = 0; x < size; x++) {
+      for (int y = 0; y < size; y++) {
+        envelopes.add(new Envelope(x, x + 1, y, y + 1));
+      }
+    }
+    return envelopes;
+  }
+
+  private static List<Envelope> sorted(List<Envelope> envelopes) {
+    List<Envelope> result = new ArrayList<>();
+    for (int i : PackedRTree.sortOrder(envelopes)) {
+      result.add(envelopes.get(i));
+    }
+    return result;
+  }
+
+  @Test
+  void testEmpty() {
+    var tree = PackedRTree.build(List.of());
+    assertEquals(0, tree.size());
+    assertEquals(List.of(), query(tree, 0, 0));
+  }
+
+  @Test
+  void testSingle() {
+    var tree = PackedRTree.build(List.of(new Envelope(0, 1, 0, 1)));
+    assertEquals(List.of(0), query(tree, 0.5, 0.5));
+    assertEquals(List.of(), query(tree, 2, 0.5));
+  }
+
+  @Test
+  void testMatchesBruteForce() {
+    List<Envelope> envelopes = sorted(grid(30));
+    envelopes.add(new Envelope(-5, 50, 14.5, 15.5));
+    var tree = PackedRTree.build(envelopes);
+    assertEquals(901, tree.size());
+
+    for (double[] point : new double[][]{{0.5, 0.5}, {14.5, 15.2}, {29.9, 29.9}, {3, 3}, {40, 15}, {40, 40}}) {
+      List<Integer> expected = new ArrayList<>();
+      for (int i = 0; i < envelopes.size(); i++) {
+        if (envelopes.get(i).contains(point[0], point[1])) {
+          expected.add(i);
+        }
+      }
+      assertEquals(expected, query(tree, point[0], point[1]));
+    }
+  }
+
+  @Test
+  void testWriteRead() throws IOException {
+    var tree = PackedRTree.build(sorted(grid(20)));
+    var bytes = new ByteArrayOutputStream();
+    tree.write(new DataOutputStream(bytes));
+    var read = PackedRTree.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+    assertEquals(400, read.size());
+    assertEquals(query(tree, 7.5, 12.5), query(read, 7.5, 12.5));
+    assertEquals(1, query(read, 7.5, 12.5).size());
+  }
+}
@@ -6,6 +6,7 @@ import com.carrotsearch.hppc.LongLongHashMap;
 import java.io.IOException;
 import java.nio.file.Path;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 class QrankDbTest {
   @Test
@@ -45,4 +46,18 @@ class QrankDbTest {
     assertEquals(0, db.get("1"));
     assertEquals(0, db.get("1;Q2"));
   }
+
+  @Test
+  void testIndex(@TempDir Path tempDir) throws IOException {
+    Path cwd = Path.of("").toAbsolutePath();
+    Path pathFromRoot = Path.of("tiles", "src", "test", "resources", "qrank_fixture.csv.gz");
+    Path indexPath = tempDir.resolve("qrank.bin");
+    assertEquals(2, QrankIndex.convert(cwd.resolveSibling(pathFromRoot), indexPath));
+
+    var db = QrankDb.fromIndex(indexPath);
+    assertEquals(1, db.get(1));
+    assertEquals(2, db.get("Q2"));
+    assertEquals(0, db.get("Q3"));
+    assertEquals(0, db.get("Q0"));
+  }
 }
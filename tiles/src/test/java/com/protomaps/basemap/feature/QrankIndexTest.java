@@ -0,0 +1,72 @@
+package com.protomaps.basemap.feature;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class QrankIndexTest {
+
+  private static QrankIndex.Rows parse(String csv) throws IOException {
+    return QrankIndex.parseCsv(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  @Test
+  void testParseSortsAndDeduplicates() throws IOException {
+    var rows = parse("Entity,QRank\nQ30,5\nQ2,100\nQ7,3\nQ2,200\n");
+    assertArrayEquals(new long[]{2, 7, 30}, rows.ids());
+    assertArrayEquals(new long[]{200, 3, 5}, rows.ranks());
+  }
+
+  @Test
+  void testParseInvalid() {
+    assertThrows(IOException.class, () -> parse("Entity,Rank\nQ1,1\n"));
+    assertThrows(IOException.class, () -> parse("Entity,QRank\n1,1\n"));
+    assertThrows(IOException.class, () -> parse("Entity,QRank\nQ1,x\n"));
+    assertThrows(IOException.class, () -> parse("Entity,QRank\nQ99999999999,1\n"));
+  }
+
+  @Test
+  void testLookup(@TempDir Path tempDir) throws IOException {
+    // uneven spacing: a dense run, then sparse ids, so that interpolation has to fall back to bisection
+    int count = 200_000;
+    long[] ids = new long[count];
+    long[] ranks = new long[count];
+    for (int i = 0; i < count; i++) {
+      ids[i] = i < count / 2 ? i * 2L + 1 : i * (long) i;
+      ranks[i] = count - i;
+    }
+    Path path = tempDir.resolve("qrank.bin");
+    QrankIndex.write(path, new QrankIndex.Rows(ids, ranks));
+    var index = QrankIndex.map(path);
+
+    assertEquals(count, index.size());
+    for (int i = 0; i < count; i += 7) {
+      assertEquals(ranks[i], index.get(ids[i]));
+      assertEquals(0, index.get(ids[i] + 1));
+    }
+    assertEquals(0, index.get(0));
+    assertEquals(0, index.get(Long.MAX_VALUE));
+  }
+
+  @Test
+  void testEmpty(@TempDir Path tempDir) throws IOException {
+    Path path = tempDir.resolve("qrank.bin");
+    QrankIndex.write(path, parse(""));
+    assertEquals(0, QrankIndex.map(path).get(1));
+  }
+
+  @Test
+  void testNotAnIndex(@TempDir Path tempDir) throws IOException {
+    Path path = tempDir.resolve("qrank.bin");
+    Files.writeString(path, "Entity,QRank\nQ1,1\n");
+    assertThrows(IOException.class, () -> QrankIndex.map(path));
+  }
+}
@@ -0,0 +1,109 @@
+package com.protomaps.basemap.feature;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.carrotsearch.hppc.LongIntHashMap;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class WikidataOverridesTest {
+
+  private static void readCsv(String csv) throws IOException {
+    WikidataOverrides.readCsv(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), new LongIntHashMap());
+  }
+
+  @Test
+  void testParseId() {
+    assertEquals(2, WikidataOverrides.parseId("Q2"));
+    assertEquals(1234567, WikidataOverrides.parseId("Q1234567"));
+    assertEquals(1, WikidataOverrides.parseId("Q1;Q2"));
+    assertEquals(-1, WikidataOverrides.parseId(null));
+    assertEquals(-1, WikidataOverrides.parseId(""));
+    assertEquals(-1, WikidataOverrides.parseId("Q"));
+    assertEquals(-1, WikidataOverrides.parseId("1"));
+    assertEquals(-1, WikidataOverrides.parseId("1;Q2"));
+    assertEquals(-1, WikidataOverrides.parseId("Q-some-wikidata"));
+    assertEquals(-1, WikidataOverrides.parseId("Q12abc"));
+    assertEquals(-1, WikidataOverrides.parseId("Q99999999999999999999"));
+  }
+
+  @Test
+  void testPack() {
+    int entry = WikidataOverrides.pack(4, -1, 9);
+    assertEquals(4, WikidataOverrides.minZoom(entry));
+    assertEquals(-1, WikidataOverrides.maxZoom(entry));
+    assertEquals(9, WikidataOverrides.rankMax(entry));
+
+    entry = WikidataOverrides.pack(-1, 15, -1);
+    assertEquals(-1, WikidataOverrides.minZoom(entry));
+    assertEquals(15, WikidataOverrides.maxZoom(entry));
+    assertEquals(-1, WikidataOverrides.rankMax(entry));
+  }
+
+  @Test
+  void testMinZoomFallback() {
+    assertEquals(7, WikidataOverrides.minZoom(WikidataOverrides.MISSING, 7));
+    assertEquals(7, WikidataOverrides.minZoom(WikidataOverrides.pack(-1, 9, 1), 7));
+    assertEquals(3, WikidataOverrides.minZoom(WikidataOverrides.pack(3, 9, 1), 7));
+  }
+
+  @Test
+  void testJarResource() {
+    var overrides = WikidataOverrides.fromJarResource();
+    int entry = overrides.get("Q228");
+    assertEquals(4, WikidataOverrides.minZoom(entry));
+    assertEquals(9, WikidataOverrides.maxZoom(entry));
+    assertEquals(-1, WikidataOverrides.rankMax(entry));
+    assertEquals(entry, overrides.get(228));
+    assertEquals(WikidataOverrides.MISSING, overrides.get("Q-some-wikidata"));
+    assertEquals(WikidataOverrides.MISSING, overrides.get((String) null));
+  }
+
+  @Test
+  void testEmpty() {
+    assertEquals(0, WikidataOverrides.empty().size());
+    assertEquals(WikidataOverrides.MISSING, WikidataOverrides.empty().get(228));
+  }
+
+  @Test
+  void testLoadReplacesBundledRows(@TempDir Path tempDir) throws IOException {
+    Path path = tempDir.resolve("overrides.csv");
+    Files.writeString(path, "wikidata,minzoom,maxzoom,rankmax\nQ228,2,7,-1\nQ243,12,-1,-1\n\nQ243,11,-1,-1\n");
+    var bundled = WikidataOverrides.fromJarResource();
+    var overrides = WikidataOverrides.load(path);
+
+    assertEquals(bundled.size() + 1, overrides.size());
+    assertEquals(2, WikidataOverrides.minZoom(overrides.get("Q228")));
+    assertEquals(7, WikidataOverrides.maxZoom(overrides.get("Q228")));
+    assertEquals(11, WikidataOverrides.minZoom(overrides.get("Q243")));
+    assertEquals(bundled.get("Q878"), overrides.get("Q878"));
+  }
+
+  @Test
+  void testFromFileSkipsBundledRows(@TempDir Path tempDir) throws IOException {
+    Path path = tempDir.resolve("overrides.csv");
+    Files.writeString(path, "wikidata,minzoom,maxzoom,rankmax\nQ243,11,-1,-1\n");
+    var overrides = WikidataOverrides.fromFile(path);
+
+    assertEquals(1, overrides.size());
+    assertEquals(11, WikidataOverrides.minZoom(overrides.get("Q243")));
+    assertEquals(WikidataOverrides.MISSING, overrides.get("Q878"));
+  }
+
+  @Test
+  void testReadInvalid() {
+    assertThrows(IOException.class, () -> readCsv("wikidata,minzoom\nQ1,1\n"));
+    assertThrows(IOException.class, () -> readCsv("wikidata,minzoom,maxzoom,rankmax\n1,1,1,1\n"));
+    assertThrows(IOException.class, () -> readCsv("wikidata,minzoom,maxzoom,rankmax\nQ1,1,1\n"));
+    assertThrows(IOException.class, () -> readCsv("wikidata,minzoom,maxzoom,rankmax\nQ1,1,1,1,1\n"));
+    assertThrows(IOException.class, () -> readCsv("wikidata,minzoom,maxzoom,rankmax\nQ1,x,1,1\n"));
+    assertThrows(IOException.class, () -> readCsv("wikidata,minzoom,maxzoom,rankmax\nQ1,1,1,-2\n"));
+    assertThrows(IOException.class, () -> readCsv("wikidata,minzoom,maxzoom,rankmax\nQ1,200,1,1\n"));
+  }
+}
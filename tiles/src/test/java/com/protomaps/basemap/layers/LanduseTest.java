@@ -1,9 +1,14 @@
 package com.protomaps.basemap.layers;
 
 import static com.onthegomap.planetiler.TestUtils.newPolygon;
+import static com.onthegomap.planetiler.TestUtils.rectangle;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import com.onthegomap.planetiler.FeatureCollector;
+import com.onthegomap.planetiler.VectorTile;
+import com.onthegomap.planetiler.geo.GeometryException;
 import com.onthegomap.planetiler.reader.SimpleFeature;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -516,4 +521,31 @@ class LanduseTest extends LayerTest {
         "protection_title", "National Park")
     );
   }
+
+  private static List<VectorTile.Feature> adjacentParcels(double size) {
+    List<VectorTile.Feature> items = new ArrayList<>();
+    items.add(new VectorTile.Feature("landuse", 1,
+      VectorTile.encodeGeometry(rectangle(10, 10, 10 + size, 10 + size)),
+      new HashMap<>(Map.of("kind", "park"))
+    ));
+    items.add(new VectorTile.Feature("landuse", 2,
+      VectorTile.encodeGeometry(rectangle(10 + size, 10, 10 + 2 * size, 10 + size)),
+      new HashMap<>(Map.of("kind", "park"))
+    ));
+    return items;
+  }
+
+  @Test
+  void testMergesSmallParcelsAtLowZooms() throws GeometryException {
+    // each parcel is under the 3.125 square pixel minimum, together they are over it
+    var merged = new Landuse().postProcess(5, adjacentParcels(1.5));
+    assertEquals(1, merged.size());
+    assertEquals(4.5, merged.getFirst().geometry().decode().getArea(), 0.1);
+  }
+
+  @Test
+  void testDropsSmallParcelsAtMidZooms() throws GeometryException {
+    assertEquals(0, new Landuse().postProcess(10, adjacentParcels(1)).size());
+    assertEquals(2, new Landuse().postProcess(10, adjacentParcels(1.5)).size());
+  }
 }
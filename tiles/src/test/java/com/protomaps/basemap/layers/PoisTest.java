@@ -1,6 +1,8 @@
 package com.protomaps.basemap.layers;
 
 import static com.onthegomap.planetiler.TestUtils.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.onthegomap.planetiler.reader.SimpleFeature;
 import java.util.HashMap;
@@ -78,4 +80,45 @@ class PoisTest extends LayerTest {
         0
       )));
   }
+
+  @Test
+  void qrankPromotesMinZoom() {
+    assertFeatures(15,
+      List.of(Map.of("kind", "attraction", "min_zoom", 12, "name", "Tour Eiffel")),
+      process(SimpleFeature.create(
+        newPoint(1, 1),
+        new HashMap<>(Map.of("tourism", "attraction", "name", "Tour Eiffel", "wikidata", "Q243")),
+        "osm",
+        null,
+        0
+      )));
+  }
+
+  @Test
+  void qrankDoesNotPromoteLowRanks() {
+    assertFeatures(15,
+      List.of(Map.of("kind", "attraction", "min_zoom", 16, "name", "Some Attraction")),
+      process(SimpleFeature.create(
+        newPoint(1, 1),
+        new HashMap<>(Map.of("tourism", "attraction", "name", "Some Attraction", "wikidata", "Q1000")),
+        "osm",
+        null,
+        0
+      )));
+  }
+
+  @Test
+  void qrankPromotion() {
+    assertEquals(10, Pois.promoteByQrank(15, 20_000_000));
+    assertEquals(13, Pois.promoteByQrank(15, 10_000));
+    assertEquals(15, Pois.promoteByQrank(15, 9_999));
+    assertEquals(8, Pois.promoteByQrank(8, 20_000_000));
+  }
+
+  @Test
+  void sortKeyPrefersEarlierZoomsThenHigherRanks() {
+    assertTrue(Pois.getSortKey(14, 0) < Pois.getSortKey(15, 10_000_000));
+    assertTrue(Pois.getSortKey(15, 10_000_000) < Pois.getSortKey(15, 1_000));
+    assertTrue(Pois.getSortKey(15, 1_000) < Pois.getSortKey(15, 0));
+  }
 }
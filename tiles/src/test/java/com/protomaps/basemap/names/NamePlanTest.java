@@ -0,0 +1,64 @@
+package com.protomaps.basemap.names;
+
+import static com.onthegomap.planetiler.TestUtils.newPoint;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.onthegomap.planetiler.FeatureCollector;
+import com.onthegomap.planetiler.config.PlanetilerConfig;
+import com.onthegomap.planetiler.reader.SimpleFeature;
+import com.onthegomap.planetiler.stats.Stats;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class NamePlanTest {
+
+  final FeatureCollector.Factory featureCollectorFactory =
+    new FeatureCollector.Factory(PlanetilerConfig.defaults(), Stats.inMemory());
+
+  @Test
+  void reusedForSameFeature() {
+    var sf = SimpleFeature.create(newPoint(0, 0),
+      new HashMap<>(Map.of("name", "Berlin", "name:de", "Berlin", "name:dk", "Berlin")), "osm", null, 1);
+
+    NamePlan plan = NamePlan.forOsm(sf);
+    assertSame(plan, NamePlan.forOsm(sf));
+
+    var other = SimpleFeature.create(newPoint(0, 0), new HashMap<>(Map.of("name", "Berlin")), "osm", null, 1);
+    assertNotSame(plan, NamePlan.forOsm(other));
+  }
+
+  @Test
+  void rebuiltWhenNameChanges() {
+    var sf = SimpleFeature.create(newPoint(0, 0), new HashMap<>(Map.of("name", "Lake")), "osm", null, 1);
+
+    NamePlan plan = NamePlan.forOsm(sf);
+    sf.setTag("name", "Other Lake");
+    NamePlan rebuilt = NamePlan.forOsm(sf);
+    assertNotSame(plan, rebuilt);
+
+    var feature = featureCollectorFactory.get(sf).point("test");
+    rebuilt.apply(feature, 0);
+    assertEquals("Other Lake", feature.getAttrsAtZoom(14).get("name"));
+  }
+
+  @Test
+  void appliedWithMinZoom() {
+    var sf = SimpleFeature.create(newPoint(0, 0),
+      new HashMap<>(Map.of("name", "東京 Tokyo", "name:zh", "東京", "name:dk", "Tokio")), "osm", null, 1);
+
+    var feature = featureCollectorFactory.get(sf).point("test");
+    NamePlan.forOsm(sf).apply(feature, 10);
+
+    assertEquals(Map.of(), feature.getAttrsAtZoom(9));
+    var attrs = feature.getAttrsAtZoom(10);
+    assertEquals("東京", attrs.get("name"));
+    assertEquals("Han", attrs.get("script"));
+    assertEquals("Tokyo", attrs.get("name2"));
+    assertEquals("東京", attrs.get("name:zh-Hant"));
+    assertEquals("東京", attrs.get("name:zh-Hans"));
+    assertEquals(null, attrs.get("name:dk"));
+  }
+}
@@ -114,4 +114,22 @@ class ScriptTest {
   void mixedJapanese() {
     assertEquals("Mixed-Japanese", Script.getScript("つつじケ丘五丁目"));
   }
+
+  @Test
+  void supplementaryPlaneHan() {
+    // U+2000B and U+20BB7 are CJK Extension B, outside of the Basic Multilingual Plane
+    assertEquals("Han", Script.getScript("\uD840\uDC0B"));
+    assertEquals("Han", Script.getScript("\uD842\uDFB7野家"));
+    assertEquals("Mixed", Script.getScript("\uD842\uDFB7 Tokyo"));
+  }
+
+  @Test
+  void classify() {
+    assertEquals(Script.LATIN, Script.classify("Berlin"));
+    assertEquals(Script.GENERIC, Script.classify("123"));
+    assertEquals(Script.MIXED, Script.classify("Berlin Αθήνα"));
+    assertEquals(Script.MIXED_JAPANESE, Script.classify("東京 とうきょう"));
+    assertEquals(Script.MIXED_JAPANESE, Script.classify("Tokyo 東京 とうきょう"));
+    assertEquals("Latin", Script.name(Script.LATIN));
+  }
 }
@@ -0,0 +1,64 @@
+package com.protomaps.basemap.postprocess;
+
+import static com.onthegomap.planetiler.TestUtils.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.onthegomap.planetiler.VectorTile;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class AreaTest {
+
+  private static VectorTile.Feature feature(String layer, org.locationtech.jts.geom.Geometry geometry) {
+    return new VectorTile.Feature(layer, 1, VectorTile.encodeGeometry(geometry), new HashMap<>(Map.of("kind", "park")));
+  }
+
+  @Test
+  void testNameMinArea() {
+    assertEquals(30000d / 256, Area.NAME_MIN_AREA, 1e-9);
+  }
+
+  @Test
+  void testDropsByPolygonArea() {
+    var small = feature("area_test", rectangle(0, 1));
+    var large = feature("area_test", rectangle(0, 2));
+    // a thin sliver whose envelope covers 100 square pixels, but that has an area of 1
+    var sliver = feature("area_test", newPolygon(0, 0, 10, 10, 10, 9.8, 0, 0));
+
+    var result = Area.filterArea("area_test", 8, List.of(small, large, sliver), 1.5);
+    assertEquals(List.of(large), result);
+    assertEquals(2, Area.droppedFeatures("area_test", 8));
+    assertTrue(Area.droppedBytes("area_test", 8) > 0);
+    assertEquals(0, Area.droppedFeatures("area_test", 9));
+  }
+
+  @Test
+  void testKeepsPointsAndLines() {
+    var point = feature("area_test_lines", newPoint(1, 1));
+    var line = feature("area_test_lines", newLineString(0, 0, 0.5, 0));
+
+    var result = Area.filterArea("area_test_lines", 5, List.of(point, line), 3);
+    assertEquals(List.of(point, line), result);
+    assertEquals(0, Area.droppedFeatures("area_test_lines", 5));
+  }
+
+  @Test
+  void testRemovesNamesOfSmallPolygons() {
+    var small = feature("area_test_names", rectangle(0, 5));
+    small.tags().put("name", "Small");
+    small.tags().put("name:de", "Klein");
+    var large = feature("area_test_names", rectangle(0, 20));
+    large.tags().put("name", "Large");
+
+    var result = Area.filterArea("area_test_names", 12, List.of(small, large), 0);
+    assertEquals(2, result.size());
+    assertFalse(small.tags().containsKey("name"));
+    assertFalse(small.tags().containsKey("name:de"));
+    assertEquals("park", small.tags().get("kind"));
+    assertEquals("Large", large.tags().get("name"));
+  }
+}
@@ -0,0 +1,46 @@
+package com.protomaps.basemap.postprocess;
+
+import static com.onthegomap.planetiler.TestUtils.newPolygon;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+
+class ClipCoverageTest {
+
+  // a rectangle that is 50% of the earths width, centered at null island.
+  private final ClipCoverage coverage = ClipCoverage.compute(
+    PreparedGeometryFactory.prepare(newPolygon(0.25, 0.25, 0.75, 0.25, 0.75, 0.75, 0.25, 0.75, 0.25, 0.25)), 3);
+
+  @Test
+  void testInterior() {
+    assertTrue(coverage.test(3, 3));
+    assertTrue(coverage.covers(3, 3));
+    assertTrue(coverage.covers(2, 5));
+  }
+
+  @Test
+  void testOutside() {
+    assertFalse(coverage.test(0, 0));
+    assertFalse(coverage.test(7, 3));
+    // touches the rectangle only along its edge
+    assertFalse(coverage.test(1, 3));
+  }
+
+  @Test
+  void testBoundary() {
+    var triangle = ClipCoverage.compute(
+      PreparedGeometryFactory.prepare(newPolygon(0.25, 0.25, 0.25, 0.75, 0.75, 0.75, 0.25, 0.25)), 2);
+    assertTrue(triangle.test(1, 1));
+    assertFalse(triangle.covers(1, 1));
+    assertTrue(triangle.covers(1, 2));
+    assertFalse(triangle.test(2, 1));
+  }
+
+  @Test
+  void testStoresCoveredCellsOnce() {
+    // the four z2 cells inside the rectangle, instead of the 16 z3 tiles they contain
+    assertEquals(4, coverage.size());
+    assertEquals(3, coverage.zoom());
+  }
+}
@@ -13,6 +13,7 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.junit.jupiter.api.Test;
 
 class ClipTest {
@@ -147,4 +148,80 @@ class ClipTest {
     assertEquals(1, clipped.get("layer").size());
     assertEquals(newLineString(62, 128, 194, 128), clipped.get("layer").getFirst().geometry().decode());
   }
+
+  @Test
+  void testClipWhollyInsideKeepsFeature() throws GeometryException {
+    var inside = new VectorTile.Feature("layer", 1,
+      VectorTile.encodeGeometry(newPolygon(100, 100, 150, 100, 150, 150, 100, 150, 100, 100)),
+      Map.of("foo", "bar")
+    );
+
+    var n = new Clip(stats, 0, 0, false, newPolygon(0.25, 0.25, 0.75, 0.25, 0.75, 0.75, 0.25, 0.75, 0.25, 0.25));
+    var clipped = n.postProcessTile(TileCoord.ofXYZ(0, 0, 0), Map.of("layer", List.of(inside)));
+    assertEquals(1, clipped.get("layer").size());
+    assertSame(inside, clipped.get("layer").getFirst());
+
+    // the second tile reuses the clipping polygon of the first
+    clipped = n.postProcessTile(TileCoord.ofXYZ(0, 0, 0), Map.of("layer", List.of(inside)));
+    assertSame(inside, clipped.get("layer").getFirst());
+  }
+
+  @Test
+  void testClipInsideNonRectangularBoundary() throws GeometryException {
+    var inside = new VectorTile.Feature("layer", 1,
+      VectorTile.encodeGeometry(newLineString(70, 180, 80, 170)),
+      Map.of("foo", "bar")
+    );
+    // inside the envelope of the triangle, but outside the triangle itself
+    var outside = new VectorTile.Feature("layer", 2,
+      VectorTile.encodeGeometry(newLineString(170, 70, 180, 80)),
+      Map.of("foo", "bar")
+    );
+
+    // a triangle in the lower left half of the 0,0,0 tile
+    var n = new Clip(stats, 0, 0, false, newPolygon(0.25, 0.25, 0.25, 0.75, 0.75, 0.75, 0.25, 0.25));
+    var clipped = n.postProcessTile(TileCoord.ofXYZ(0, 0, 0), Map.of("layer", List.of(inside, outside)));
+    assertEquals(1, clipped.get("layer").size());
+    assertSame(inside, clipped.get("layer").getFirst());
+  }
+
+  @Test
+  void testClipComputesZoomsLazily() throws GeometryException {
+    var feature = new VectorTile.Feature("layer", 1,
+      VectorTile.encodeGeometry(newLineString(0, 1, 5, 1)),
+      Map.of("foo", "bar")
+    );
+
+    var n = new Clip(stats, 0, 6, false, newPolygon(0.25, 0.25, 0.75, 0.25, 0.75, 0.75, 0.25, 0.75, 0.25, 0.25));
+    assertEquals(Set.of(), n.boundaryZooms());
+
+    n.postProcessTile(TileCoord.ofXYZ(0, 0, 0), Map.of("layer", List.of(feature)));
+    n.postProcessTile(TileCoord.ofXYZ(0, 0, 1), Map.of("layer", List.of(feature)));
+    assertEquals(Set.of(0, 1), n.boundaryZooms());
+
+    // boundaries of zooms that were written are dropped once a tile two zooms deeper arrives
+    n.postProcessTile(TileCoord.ofXYZ(1, 1, 2), Map.of("layer", List.of(feature)));
+    assertEquals(Set.of(1, 2), n.boundaryZooms());
+    n.postProcessTile(TileCoord.ofXYZ(16, 16, 5), Map.of("layer", List.of(feature)));
+    assertEquals(Set.of(5), n.boundaryZooms());
+
+    // and recomputed for stragglers
+    var clipped = n.postProcessTile(TileCoord.ofXYZ(0, 0, 0), Map.of("layer", List.of(feature)));
+    assertEquals(0, clipped.size());
+    assertEquals(Set.of(0, 5), n.boundaryZooms());
+  }
+
+  @Test
+  void testClipComputeZoomsInParallel() throws GeometryException {
+    var feature = new VectorTile.Feature("layer", 1,
+      VectorTile.encodeGeometry(newLineString(0, 1, 5, 1)),
+      Map.of("foo", "bar")
+    );
+
+    var n = new Clip(stats, 0, 4, false, newPolygon(0.25, 0.25, 0.75, 0.25, 0.75, 0.75, 0.25, 0.75, 0.25, 0.25))
+      .computeZooms(true);
+    assertEquals(Set.of(0, 1, 2, 3, 4), n.boundaryZooms());
+    assertEquals(1, n.postProcessTile(TileCoord.ofXYZ(3, 3, 3), Map.of("layer", List.of(feature))).size());
+    assertEquals(0, n.postProcessTile(TileCoord.ofXYZ(0, 0, 3), Map.of("layer", List.of(feature))).size());
+  }
 }
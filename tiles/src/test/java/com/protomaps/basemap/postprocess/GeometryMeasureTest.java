@@ -0,0 +1,86 @@
+package com.protomaps.basemap.postprocess;
+
+import static com.onthegomap.planetiler.TestUtils.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.onthegomap.planetiler.VectorTile;
+import com.onthegomap.planetiler.geo.GeoUtils;
+import com.onthegomap.planetiler.geo.GeometryException;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.LinearRing;
+
+class GeometryMeasureTest {
+
+  private static void assertMatchesDecoded(VectorTile.VectorGeometry encoded) throws GeometryException {
+    var measure = new GeometryMeasure().measure(encoded);
+    Geometry decoded = encoded.decode();
+    var envelope = decoded.getEnvelopeInternal();
+    assertEquals(envelope.getMinX(), measure.minX(), 1e-9);
+    assertEquals(envelope.getMinY(), measure.minY(), 1e-9);
+    assertEquals(envelope.getMaxX(), measure.maxX(), 1e-9);
+    assertEquals(envelope.getMaxY(), measure.maxY(), 1e-9);
+    assertEquals(envelope.getArea(), measure.envelopeArea(), 1e-9);
+  }
+
+  @Test
+  void testPoint() throws GeometryException {
+    var encoded = VectorTile.encodeGeometry(newPoint(12.5, 20));
+    assertMatchesDecoded(encoded);
+    var measure = new GeometryMeasure().measure(encoded);
+    assertEquals(1, measure.vertexCount());
+    assertEquals(0, measure.envelopeArea());
+    assertEquals(0, measure.area());
+  }
+
+  @Test
+  void testLine() throws GeometryException {
+    var encoded = VectorTile.encodeGeometry(newLineString(0, 0, 10, 5, 3, 20, -4, 8));
+    assertMatchesDecoded(encoded);
+    var measure = new GeometryMeasure().measure(encoded);
+    assertEquals(4, measure.vertexCount());
+    assertEquals(14 * 20, measure.envelopeArea(), 1e-9);
+    assertEquals(0, measure.area());
+  }
+
+  @Test
+  void testScaledLine() throws GeometryException {
+    assertMatchesDecoded(VectorTile.encodeGeometry(newLineString(0.125, 0.25, 10.5, 5.75), 2));
+  }
+
+  @Test
+  void testPolygon() throws GeometryException {
+    var encoded = VectorTile.encodeGeometry(rectangle(0, 10));
+    assertMatchesDecoded(encoded);
+    var measure = new GeometryMeasure().measure(encoded);
+    assertEquals(100, Math.abs(measure.area()), 1e-9);
+    assertEquals(100, measure.envelopeArea(), 1e-9);
+  }
+
+  @Test
+  void testPolygonWithHole() throws GeometryException {
+    LinearRing shell = GeoUtils.JTS_FACTORY.createLinearRing(new Coordinate[]{
+      new Coordinate(0, 0), new Coordinate(10, 0), new Coordinate(10, 10), new Coordinate(0, 10), new Coordinate(0, 0)
+    });
+    LinearRing hole = GeoUtils.JTS_FACTORY.createLinearRing(new Coordinate[]{
+      new Coordinate(2, 2), new Coordinate(2, 4), new Coordinate(4, 4), new Coordinate(4, 2), new Coordinate(2, 2)
+    });
+    var encoded = VectorTile.encodeGeometry(GeoUtils.JTS_FACTORY.createPolygon(shell, new LinearRing[]{hole}));
+    assertMatchesDecoded(encoded);
+    var measure = new GeometryMeasure().measure(encoded);
+    assertEquals(96, Math.abs(measure.area()), 1e-9);
+    assertEquals(8, measure.vertexCount());
+  }
+
+  @Test
+  void testReuse() {
+    var measure = new GeometryMeasure();
+    measure.measure(VectorTile.encodeGeometry(rectangle(0, 10)));
+    measure.measure(VectorTile.encodeGeometry(newLineString(0, 0, 1, 1)));
+    assertEquals(1, measure.envelopeArea(), 1e-9);
+    assertEquals(0, measure.area());
+    assertTrue(!measure.isEmpty());
+  }
+}
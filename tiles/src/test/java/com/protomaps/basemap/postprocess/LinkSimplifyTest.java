@@ -2,6 +2,8 @@ package com.protomaps.basemap.postprocess;
 
 import static com.onthegomap.planetiler.TestUtils.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.onthegomap.planetiler.VectorTile;
 import com.onthegomap.planetiler.geo.GeometryException;
@@ -9,6 +11,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
 
 class LinkSimplifyTest {
 
@@ -112,5 +115,58 @@ class LinkSimplifyTest {
     assertEquals(5, result.size());
   }
 
+  @Test
+  void testClassesCountDegreesSeparately() throws GeometryException {
+    List<VectorTile.Feature> items = new ArrayList<VectorTile.Feature>();
+
+    items.add(new VectorTile.Feature("mylayer", 1,
+      VectorTile.encodeGeometry(newLineString(0, 0, 10, 0, 20, 0)),
+      Map.of("highway", "tag1")
+    ));
+    items.add(new VectorTile.Feature("mylayer", 1,
+      VectorTile.encodeGeometry(newLineString(0, 10, 10, 10, 20, 10)),
+      Map.of("highway", "tag1")
+    ));
+    // connects two tag1 ways
+    items.add(new VectorTile.Feature("mylayer", 2,
+      VectorTile.encodeGeometry(newLineString(10, 0, 10, 10)),
+      Map.of("highway", "tag1_link")
+    ));
+    // touches the tag1 ways, but only connects a tag2 way to nothing of its own class
+    items.add(new VectorTile.Feature("mylayer", 3,
+      VectorTile.encodeGeometry(newLineString(20, 0, 20, 10)),
+      Map.of("highway", "tag2_link")
+    ));
+    items.add(new VectorTile.Feature("mylayer", 1,
+      VectorTile.encodeGeometry(newLineString(20, 0, 30, 0)),
+      Map.of("highway", "tag2")
+    ));
+
+    var classes = List.of(
+      new LinkSimplify.LinkClass("tag1", "tag1_link"),
+      new LinkSimplify.LinkClass("tag2", "tag2_link")
+    );
+    var result = LinkSimplify.linkSimplify(items, "highway", classes);
+    assertEquals(4, result.size());
+    assertEquals(List.of(1L, 1L, 2L, 1L), result.stream().map(VectorTile.Feature::id).toList());
+
+    var sequential = LinkSimplify.linkSimplify(items, "highway", "tag1", "tag1_link");
+    sequential = LinkSimplify.linkSimplify(sequential, "highway", "tag2", "tag2_link");
+    assertEquals(sequential, result);
+  }
 
+  @Test
+  void testDegreeKeys() {
+    assertEquals(LinkSimplify.degreeKey(0, new Coordinate(10, 20)), LinkSimplify.degreeKey(0, new Coordinate(10, 20)));
+    assertNotEquals(LinkSimplify.degreeKey(0, new Coordinate(10, 20)),
+      LinkSimplify.degreeKey(1, new Coordinate(10, 20)));
+    assertNotEquals(LinkSimplify.degreeKey(0, new Coordinate(10, 20)),
+      LinkSimplify.degreeKey(0, new Coordinate(20, 10)));
+    // coordinates in the tile buffer
+    assertNotEquals(LinkSimplify.degreeKey(0, new Coordinate(-10, 20)),
+      LinkSimplify.degreeKey(0, new Coordinate(10, 20)));
+    assertNotEquals(LinkSimplify.degreeKey(0, new Coordinate(10, 20)),
+      LinkSimplify.degreeKey(0, new Coordinate(10.0625, 20)));
+    assertTrue(LinkSimplify.degreeKey(127, new Coordinate(-300, -300)) >= 0);
+  }
 }
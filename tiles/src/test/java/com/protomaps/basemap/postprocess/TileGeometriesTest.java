@@ -0,0 +1,37 @@
+package com.protomaps.basemap.postprocess;
+
+import static com.onthegomap.planetiler.TestUtils.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.onthegomap.planetiler.VectorTile;
+import com.onthegomap.planetiler.geo.GeometryException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class TileGeometriesTest {
+
+  @Test
+  void testCountsDecodesPerLayer() throws GeometryException {
+    var feature = new VectorTile.Feature("decode_count", 1,
+      VectorTile.encodeGeometry(newLineString(0, 0, 10, 0)), new HashMap<>());
+
+    assertEquals(newLineString(0, 0, 10, 0), TileGeometries.decode(feature));
+    TileGeometries.decode(feature);
+    assertEquals(2, TileGeometries.decodes("decode_count"));
+    assertEquals(0, TileGeometries.decodes("other"));
+  }
+
+  @Test
+  void testCountsPostProcessorDecodes() throws GeometryException {
+    var main = new VectorTile.Feature("link_decodes", 1,
+      VectorTile.encodeGeometry(newLineString(0, 0, 10, 0, 20, 0)), new HashMap<>(Map.of("highway", "tag1")));
+    var link = new VectorTile.Feature("link_decodes", 2,
+      VectorTile.encodeGeometry(newLineString(10, 0, 10, 10)), new HashMap<>(Map.of("highway", "tag1_link")));
+
+    var items = LinkSimplify.linkSimplify(List.of(main, link), "highway", "tag1", "tag1_link");
+    assertEquals(1, items.size());
+    assertEquals(2, TileGeometries.decodes("link_decodes"));
+  }
+}
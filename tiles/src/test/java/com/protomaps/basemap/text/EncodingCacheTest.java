@@ -0,0 +1,58 @@
+package com.protomaps.basemap.text;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class EncodingCacheTest {
+
+  @Test
+  void testHitsAndMisses() {
+    AtomicInteger calls = new AtomicInteger();
+    EncodingCache cache = new EncodingCache(1000, text -> {
+      calls.incrementAndGet();
+      return text.toUpperCase();
+    });
+
+    assertEquals("ABC", cache.get("abc"));
+    assertEquals("ABC", cache.get("abc"));
+    assertEquals("XYZ", cache.get("xyz"));
+
+    assertEquals(2, calls.get());
+    assertEquals(1, cache.hits());
+    assertEquals(2, cache.misses());
+    assertEquals(2, cache.size());
+  }
+
+  @Test
+  void testBounded() {
+    EncodingCache cache = new EncodingCache(128, text -> text);
+    for (int i = 0; i < 10_000; i++) {
+      cache.get(Integer.toString(i));
+    }
+    assertTrue(cache.size() <= 128);
+    assertEquals(10_000, cache.misses());
+  }
+
+  @Test
+  void testSizesBelowShardCount() {
+    EncodingCache cache = new EncodingCache(10, text -> text);
+    for (int i = 0; i < 10_000; i++) {
+      cache.get(Integer.toString(i));
+    }
+    assertTrue(cache.size() <= 10);
+    assertTrue(cache.size() > 0);
+  }
+
+  @Test
+  void testDisabled() {
+    EncodingCache cache = new EncodingCache(0, text -> text + "!");
+    assertEquals("a!", cache.get("a"));
+    assertEquals("a!", cache.get("a"));
+    assertEquals(0, cache.hits());
+    assertEquals(2, cache.misses());
+    assertEquals(0, cache.size());
+  }
+}
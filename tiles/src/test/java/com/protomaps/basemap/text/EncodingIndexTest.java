@@ -0,0 +1,105 @@
+package com.protomaps.basemap.text;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class EncodingIndexTest {
+
+  private static final String CSV_ENTRY =
+    "wipfli-pgf-encoding-e9c03fb/encoding/NotoSansDevanagari-Regular-v1.csv";
+
+  private static Path fixture() {
+    Path cwd = Path.of("").toAbsolutePath();
+    Path pathFromRoot = Path.of("tiles", "src", "test", "resources", "pgf-encoding-fixture.zip");
+    return cwd.resolveSibling(pathFromRoot);
+  }
+
+  @Test
+  void testParseCsv() throws IOException {
+    String csv = "index,x_offset,y_offset,x_advance,y_advance,codepoint\n66,0,0,4,0,63743\n 40, -1,0,9,0,63742\n";
+    var table = EncodingIndex.parseCsv(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+    assertEquals(2, table.keys().length);
+    assertTrue(table.keys()[0] < table.keys()[1]);
+
+    GlyphEncoding encoding = table.toEncoding();
+    assertEquals(63743, encoding.get(66, 0, 0, 4, 0));
+    assertEquals(63742, encoding.get(40, -1, 0, 9, 0));
+  }
+
+  @Test
+  void testParseCsvSortsRows() throws IOException {
+    StringBuilder csv = new StringBuilder("index,x_offset,y_offset,x_advance,y_advance,codepoint\n");
+    for (int i = 99; i >= 0; i--) {
+      csv.append(i % 2 == 0 ? i : 100 - i).append(",0,0,4,0,").append(60000 + i).append('\n');
+    }
+    var table = EncodingIndex.parseCsv(new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)));
+
+    for (int i = 1; i < table.keys().length; i++) {
+      assertTrue(table.keys()[i - 1] <= table.keys()[i]);
+    }
+    GlyphEncoding encoding = table.toEncoding();
+    assertEquals(60000 + 98, encoding.get(98, 0, 0, 4, 0));
+    assertEquals(60000 + 3, encoding.get(97, 0, 0, 4, 0));
+  }
+
+  @Test
+  void testRoundTrip(@TempDir Path tempDir) throws IOException {
+    try (ZipFile zipFile = new ZipFile(fixture().toFile())) {
+      ZipEntry entry = zipFile.getEntry(CSV_ENTRY);
+      EncodingIndex.Table table;
+      try (InputStream inputStream = zipFile.getInputStream(entry)) {
+        table = EncodingIndex.parseCsv(inputStream);
+      }
+
+      Path path = tempDir.resolve(EncodingIndex.fileName(entry));
+      assertEquals("NotoSansDevanagari-Regular-v1.bin", path.getFileName().toString());
+      assertNull(EncodingIndex.read(path, entry));
+
+      EncodingIndex.write(path, entry, table);
+      var read = EncodingIndex.read(path, entry);
+      assertNotNull(read);
+      assertArrayEquals(table.keys(), read.keys());
+      assertArrayEquals(table.codepoints(), read.codepoints());
+      assertEquals(63743, read.toEncoding().get(66, 0, 0, 4, 0));
+
+      // an index built from a different CSV is ignored
+      ZipEntry changed = new ZipEntry(entry);
+      changed.setCrc(entry.getCrc() ^ 1);
+      assertNull(EncodingIndex.read(path, changed));
+    }
+  }
+
+  @Test
+  void testRegistryWritesIndex(@TempDir Path tempDir) {
+    FontRegistry fontRegistry = FontRegistry.getInstance();
+    fontRegistry.setZipFilePath(fixture().toString());
+    fontRegistry.setIndexDirectory(tempDir);
+    try {
+      fontRegistry.loadFontBundles(List.of(
+        new FontRegistry.BundleSource("NotoSansDevanagari-Regular", "1", "Devanagari")));
+      assertTrue(Files.isRegularFile(tempDir.resolve("NotoSansDevanagari-Regular-v1.bin")));
+
+      // loaded again from the index
+      fontRegistry.loadFontBundle("NotoSansDevanagari-Regular", "1", "Devanagari");
+      assertEquals(63743, fontRegistry.getEncoding("Devanagari").get(66, 0, 0, 4, 0));
+    } finally {
+      fontRegistry.setIndexDirectory(null);
+    }
+  }
+}
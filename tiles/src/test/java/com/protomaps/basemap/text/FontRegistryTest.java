@@ -1,10 +1,12 @@
 package com.protomaps.basemap.text;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.nio.file.Path;
 import java.util.List;
-import java.util.Map;
 import org.junit.jupiter.api.Test;
 
 public class FontRegistryTest {
@@ -29,11 +31,26 @@ public class FontRegistryTest {
     assertEquals(1, scripts.size());
     assertEquals(script, scripts.get(0));
 
-    String glyphKey = FontRegistry.getGlyphKey(66, 0, 0, 4, 0);
-    assertEquals("66|0|0|4|0", glyphKey);
+    GlyphEncoding encoding = fontRegistry.getEncoding(script);
+    assertEquals(63743, encoding.get(66, 0, 0, 4, 0));
 
-    Map<String, Integer> encoding = fontRegistry.getEncoding(script);
-    assertEquals(63743, encoding.get(glyphKey));
+  }
+
+  @Test
+  void testHasScript() {
+    FontRegistry fontRegistry = FontRegistry.getInstance();
+    Path cwd = Path.of("").toAbsolutePath();
+    Path pathFromRoot = Path.of("tiles", "src", "test", "resources", "pgf-encoding-fixture.zip");
+    String zipFilePath = cwd.resolveSibling(pathFromRoot).toString();
+    fontRegistry.setZipFilePath(zipFilePath);
+
+    fontRegistry.loadFontBundle("NotoSansDevanagari-Regular", "1", "Devanagari");
+
+    assertTrue(fontRegistry.hasScript("Devanagari"));
+    assertFalse(fontRegistry.hasScript("Tamil"));
+    assertFalse(fontRegistry.hasScript(null));
 
+    // reads share the published snapshot instead of copying it
+    assertSame(fontRegistry.getScripts(), fontRegistry.getScripts());
   }
 }
@@ -0,0 +1,85 @@
+package com.protomaps.basemap.text;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class GlyphEncodingTest {
+
+  @Test
+  void testGet() {
+    GlyphEncoding encoding = new GlyphEncoding.Builder()
+      .put(66, 0, 0, 4, 0, 63743)
+      .put(66, -1, 0, 4, 0, 63744)
+      .put(65535, -2048, 2047, -2048, 2047, 63745)
+      .build();
+
+    assertEquals(3, encoding.size());
+    assertEquals(63743, encoding.get(66, 0, 0, 4, 0));
+    assertEquals(63744, encoding.get(66, -1, 0, 4, 0));
+    assertEquals(63745, encoding.get(65535, -2048, 2047, -2048, 2047));
+    assertEquals(GlyphEncoding.MISSING, encoding.get(66, 0, 0, 5, 0));
+    assertEquals(GlyphEncoding.MISSING, encoding.get(66, 0, 0, 4, 2048));
+    assertEquals(GlyphEncoding.MISSING, encoding.get(65536, 0, 0, 4, 0));
+  }
+
+  @Test
+  void testKeysDoNotCollide() {
+    assertNotEquals(GlyphEncoding.key(1, 0, 0, 0, 0), GlyphEncoding.key(0, 0, 0, 0, 1));
+    assertNotEquals(GlyphEncoding.key(0, -1, 0, 0, 0), GlyphEncoding.key(0, 0, -1, 0, 0));
+    assertNotEquals(GlyphEncoding.key(0, 0, 0, -1, 0), GlyphEncoding.key(0, 0, 0, 0, -1));
+  }
+
+  @Test
+  void testOutOfRange() {
+    GlyphEncoding.Builder builder = new GlyphEncoding.Builder();
+    assertThrows(IllegalArgumentException.class, () -> builder.put(-1, 0, 0, 0, 0, 33));
+    assertThrows(IllegalArgumentException.class, () -> builder.put(0, 2048, 0, 0, 0, 33));
+  }
+
+  @Test
+  void testNearest() {
+    GlyphEncoding encoding = new GlyphEncoding.Builder()
+      .put(66, 0, 0, 4, 0, 1)
+      .put(66, 2, 0, 4, 0, 2)
+      .put(66, 1, 0, 9, 0, 3)
+      .put(66, 1, 0, 7, 0, 4)
+      .put(67, 0, 0, 0, 0, 5)
+      .build();
+
+    assertEquals(1, encoding.nearest(66, 0, 0, 4, 0, 4));
+    // distance 1 on both sides, the smaller xOffset wins
+    assertEquals(1, encoding.nearest(66, 1, 0, 4, 0, 4));
+    // same xOffset at distance 1, the larger xAdvance wins
+    assertEquals(3, encoding.nearest(66, 1, 0, 8, 0, 4));
+    assertEquals(2, encoding.nearest(66, 5, 0, 3, 0, 4));
+    assertEquals(GlyphEncoding.MISSING, encoding.nearest(66, 7, 0, 4, 0, 4));
+    assertEquals(2, encoding.nearest(66, 7, 0, 4, 0, 5));
+    // yOffset, yAdvance and the index must match exactly
+    assertEquals(GlyphEncoding.MISSING, encoding.nearest(66, 0, 1, 4, 0, 4));
+    assertEquals(GlyphEncoding.MISSING, encoding.nearest(66, 0, 0, 4, 1, 4));
+    assertEquals(5, encoding.nearest(67, 1, 0, 1, 0, 4));
+    assertEquals(GlyphEncoding.MISSING, encoding.nearest(68, 0, 0, 4, 0, 4));
+    assertEquals(GlyphEncoding.MISSING, encoding.nearest(66, 1, 0, 4, 0, 0));
+  }
+
+  @Test
+  void testNearestMatchDistance() {
+    GlyphEncoding encoding = new GlyphEncoding.Builder()
+      .put(66, 0, 0, 4, 0, 1)
+      .put(66, 2, 0, 4, 0, 2)
+      .build();
+
+    long exact = encoding.nearestMatch(66, 0, 0, 4, 0, 4);
+    assertEquals(1, GlyphEncoding.matchCodepoint(exact));
+    assertEquals(0, GlyphEncoding.matchDistance(exact));
+
+    long near = encoding.nearestMatch(66, 5, 0, 3, 0, 4);
+    assertEquals(2, GlyphEncoding.matchCodepoint(near));
+    assertEquals(4, GlyphEncoding.matchDistance(near));
+
+    assertEquals(GlyphEncoding.MISSING, GlyphEncoding.matchCodepoint(encoding.nearestMatch(66, 9, 0, 4, 0, 4)));
+  }
+}
@@ -0,0 +1,53 @@
+package com.protomaps.basemap.text;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class SegmentTableTest {
+
+  @Test
+  void testContains() {
+    var table = SegmentTable.of(List.of("Devanagari", "Telugu"));
+    assertTrue(table.contains(0x0900));
+    assertTrue(table.contains(0x097F));
+    assertTrue(table.contains(0x0C10));
+    assertFalse(table.contains(0x08FF));
+    assertFalse(table.contains(0x0980));
+    assertFalse(table.contains('a'));
+    assertFalse(table.contains(Character.MAX_CODE_POINT));
+  }
+
+  @Test
+  void testSegment() {
+    var table = SegmentTable.of(List.of("Devanagari"));
+    assertEquals(List.of("काठमाडौँ", " 123"), table.segment("काठमाडौँ 123"));
+    assertEquals(List.of("Hello ", "काठमाडौँ", " 😀"), table.segment("Hello काठमाडौँ 😀"));
+    assertEquals(List.of("తెలుగు"), table.segment("తెలుగు"));
+    assertEquals(List.of(), table.segment(""));
+    assertEquals(List.of(), table.segment(null));
+  }
+
+  @Test
+  void testEmpty() {
+    assertSame(SegmentTable.EMPTY, SegmentTable.of(List.of()));
+    assertEquals(List.of("काठमाडौँ 123"), SegmentTable.EMPTY.segment("काठमाडौँ 123"));
+  }
+
+  @Test
+  void testForScriptsIsCachedBySet() {
+    var table = SegmentTable.forScripts(List.of("Devanagari", "Telugu"));
+    assertSame(table, SegmentTable.forScripts(List.of("Telugu", "Devanagari")));
+    assertTrue(table.contains(0x0C10));
+  }
+
+  @Test
+  void testUnknownScript() {
+    assertThrows(IllegalArgumentException.class, () -> SegmentTable.of(List.of("Not a block")));
+  }
+}
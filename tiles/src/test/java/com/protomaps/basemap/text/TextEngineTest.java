@@ -5,7 +5,6 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import java.awt.Font;
 import java.nio.file.Path;
 import java.util.List;
-import java.util.Map;
 import org.junit.jupiter.api.Test;
 
 public class TextEngineTest {
@@ -25,7 +24,7 @@ public class TextEngineTest {
 
     String text = "काठमाडौँ";
     Font font = fontRegistry.getFont(script);
-    Map<String, Integer> encoding = fontRegistry.getEncoding(script);
+    GlyphEncoding encoding = fontRegistry.getEncoding(script);
 
     String textEncoded = TextEngine.encode(text, font, encoding);
 